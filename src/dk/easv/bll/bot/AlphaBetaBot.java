@@ -0,0 +1,63 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+import dk.easv.bll.search.AlphaBetaSearch;
+import dk.easv.bll.search.OpeningBook;
+
+/**
+ * Iterative deepening alpha-beta bot, see AlphaBetaSearch.
+ * With -Duttt.verbose=true it prints the depth it reached and its speed after every move, to
+ * compare it with the MCTS bots. getDepth() and getNodesPerSecond() give the same numbers.
+ * Plays the move from OpeningBook.getDefault() when the position is in the book.
+ */
+public class AlphaBetaBot implements IBot {
+    private static final String BOTNAME = "Alpha-Beta Bot";
+    /**
+     * System property that turns on the search statistics printed after every move.
+     */
+    public static final String VERBOSE_PROPERTY = "uttt.verbose";
+    private static final boolean VERBOSE = Boolean.getBoolean(VERBOSE_PROPERTY);
+    // 2^20 entries, 16 MB
+    private static final int TABLE_SIZE_LOG2 = 20;
+
+    private final TimeManager timeManager = new TimeManager();
+    private AlphaBetaSearch search; // Created on the first move, so listing the bot stays cheap
+
+    @Override
+    public IMove doMove(IGameState state) {
+        GameSimulator root = new GameSimulator(state);
+        int bookMove = OpeningBook.getDefault().lookup(root);
+        if (bookMove >= 0)
+            return Move.of(bookMove);
+        if (search == null)
+            search = new AlphaBetaSearch(TABLE_SIZE_LOG2);
+        timeManager.start(state, root);
+        int cell = search.search(root, timeManager.getDeadlineNanos(), AlphaBetaSearch.MAX_DEPTH);
+        if (VERBOSE)
+            System.out.println(BOTNAME + ": depth " + getDepth() + ", score " + search.getScore()
+                    + ", " + search.getNodes() + " nodes, " + getNodesPerSecond() + " nodes/s");
+        return cell < 0 ? null : Move.of(cell);
+    }
+
+    /**
+     * @return The depth reached on the last move
+     */
+    public int getDepth() {
+        return search == null ? 0 : search.getCompletedDepth();
+    }
+
+    /**
+     * @return Positions searched per second on the last move
+     */
+    public long getNodesPerSecond() {
+        return search == null ? 0 : search.getNodesPerSecond();
+    }
+
+    @Override
+    public String getBotName() {
+        return BOTNAME;
+    }
+}
@@ -0,0 +1,27 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.IGameState;
+
+/**
+ * A bot that can keep thinking while the opponent is to move, e.g. growing its search tree
+ * below the replies the opponent is likely to play.
+ *
+ * Pondering is opt-in, see GameManager.setPonderingEnabled(). When it is enabled, the
+ * GameManager calls startPondering() right after the bot's move has been played, and
+ * stopPondering() before the bot is asked for its next move and when the game ends.
+ */
+public interface IPonderingBot extends IBot {
+
+    /**
+     * Starts thinking on the bot's own thread. Must return right away.
+     * @param state A copy of the state after the bot's move, with the opponent to move
+     */
+    void startPondering(IGameState state);
+
+    /**
+     * Stops thinking. When this returns the bot must no longer use any CPU,
+     * so the opponent's time or the bot's own doMove() is not disturbed.
+     * Calling it when the bot is not pondering does nothing.
+     */
+    void stopPondering();
+}
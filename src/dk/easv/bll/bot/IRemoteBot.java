@@ -0,0 +1,11 @@
+package dk.easv.bll.bot;
+
+/**
+ * A bot whose doMove() spends its time waiting on I/O, like a call to a bot running on a server,
+ * instead of using the CPU.
+ *
+ * Tournament runners can play many games against such bots at once on virtual threads, while
+ * limiting how many CPU-bound bots think at the same time (see dk.easv.bll.tournament.MatchScheduler).
+ */
+public interface IRemoteBot extends IBot {
+}
@@ -1,7 +1,6 @@
 package dk.easv.bll.bot;
 
-import dk.easv.bll.field.IField;
-import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.GameSimulator;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
 
@@ -11,34 +10,30 @@ import java.util.Random;
 public class Monte implements IBot {
     private static final String botName = "Monte Carlo Bot-Brandon";
     private Random random = new Random();
+    private final TimeManager timeManager = new TimeManager();
 
     @Override
     public IMove doMove(IGameState state) {
+        // Read the game into the simulator once, every playout starts from a copy of it
+        GameSimulator root = new GameSimulator(state);
+        timeManager.start(state, root);
+        int me = root.getCurrentPlayer();
+        int opponent = 1 - me;
         // Get all available moves
         List<IMove> availableMoves = state.getField().getAvailableMoves();
 
         // Check for winning moves
         for (IMove move : availableMoves) {
-            // Clone the game state to simulate the move
-            IGameState simulatedState = cloneGameState(state);
-            // Simulate the move
-            simulatedState.getField().getBoard()[move.getX()][move.getY()] = "0";
-            // Check if the move is a winning move
-            if (checkWinCondition(simulatedState, move.getX() / 3 * 3, move.getY() / 3 * 3, "0")) {
+            // Check if the move wins the microboard
+            if (root.winsMicroboard(me, cellOf(move))) {
                 return move; // Return the winning move
             }
         }
 
         // Check for opponent's winning moves
         for (IMove move : availableMoves) {
-            // Clone the game state to simulate the opponent's move
-            IGameState simulatedState = cloneGameState(state);
-            // Simulate the opponent's move
-            simulatedState.getField().getBoard()[move.getX()][move.getY()] = "1";
-            // Update the move number
-            simulatedState.setMoveNumber(simulatedState.getMoveNumber() + 1);
-            // Check if the opponent's move is a winning move
-            if (checkWinCondition(simulatedState, move.getX() / 3 * 3, move.getY() / 3 * 3, "1")) {
+            // Check if the opponent would win the microboard here
+            if (root.winsMicroboard(opponent, cellOf(move))) {
                 return move; // Block the opponent's winning move
             }
         }
@@ -46,34 +41,40 @@ public class Monte implements IBot {
         // Initialize the best move and the best win rate
         IMove bestMove = availableMoves.getFirst();
         double bestWinRate = Double.NEGATIVE_INFINITY;
-        // Calculate the time per move
-        long timePerMove = 990 / availableMoves.size();
+        GameSimulator simulation = new GameSimulator();
+        // Only the moves that are not skipped get a share of the time
+        int movesLeft = 0;
+        for (IMove move : availableMoves) {
+            if (!root.givesFreeChoice(cellOf(move))) {
+                movesLeft++;
+            }
+        }
 
         // Iterate over all available moves
         for (int i = 0; i < availableMoves.size(); i++) {
             IMove move = availableMoves.get(i);
             // Skip the move if it opens a board
-            if (opensBoard(state, move)) {
+            if (root.givesFreeChoice(cellOf(move))) {
                 continue;
             }
+            // Give the move an equal share of the time that is left
+            timeManager.startSlice(1, movesLeft--);
             // Initialize the number of wins and simulations
             int wins = 0;
             int simulations = 0;
-            // Record the start time
-            long startTime = System.currentTimeMillis();
-            // Simulate the game until the time per move is up
-            while (System.currentTimeMillis() - startTime < timePerMove) {
-                // Clone the game state to simulate the game
-                IGameState simulatedState = cloneGameState(state);
+            // Simulate the game until the time for this move is up, at least once
+            do {
+                // Reset the simulation to the current game
+                simulation.copyFrom(root);
                 // Simulate the move
-                simulatedState.getField().getBoard()[move.getX()][move.getY()] = "0";
+                simulation.play(move);
                 // If the simulated game is a win, increment the number of wins
-                if (simulateGame(simulatedState)) {
+                if (simulation.randomPlayout(random) == me) {
                     wins++;
                 }
                 // Increment the number of simulations
                 simulations++;
-            }
+            } while (!timeManager.isTimeUp());
 
             // Print the number of simulations
             System.out.println("Move: " + move + ", Simulations: " + simulations);
@@ -91,96 +92,12 @@ public class Monte implements IBot {
         return bestMove;
     }
 
-    private boolean simulateGame(IGameState state) {
-        // Keep playing until the game board is full
-        while (!state.getField().isFull()) {
-            // Get the list of available moves
-            List<IMove> availableMoves = state.getField().getAvailableMoves();
-            // If there are no more moves available, the game is a draw
-            if (availableMoves.isEmpty()) {
-                return false;
-            }
-            // Choose a random move from the available moves
-            IMove randomMove = availableMoves.get(random.nextInt(availableMoves.size()));
-
-            // Determine the current player based on the move number
-            String currentPlayer = state.getMoveNumber() % 2 == 0 ? "0" : "1";
-            // Make the move on the game board
-            state.getField().getBoard()[randomMove.getX()][randomMove.getY()] = currentPlayer;
-            // Increment the move number
-            state.setMoveNumber(state.getMoveNumber() + 1);
-
-            // Check if the current player has won the game
-            int subBoardX = randomMove.getX() / 3;
-            int subBoardY = randomMove.getY() / 3;
-            if (checkWinCondition(state, subBoardX * 3, subBoardY * 3, currentPlayer)) {
-                // If the current player has won, return true
-                return true;
-            }
-        }
-
-        // If the game board is full and no player has won, the game is a draw
-        return false;
+    private int cellOf(IMove move) {
+        return move.getX() * 9 + move.getY();
     }
 
-    private boolean checkWinCondition(IGameState state, int startX, int startY, String player) {
-        String[][] board = state.getField().getBoard();
-
-        // Check rows
-        for (int y = 0; y < 3; y++) {
-            if (board[startX][startY + y].equals(player) &&
-                    board[startX + 1][startY + y].equals(player) &&
-                    board[startX + 2][startY + y].equals(player)) {
-                return true;
-            }
-        }
-
-        // Check columns
-        for (int x = 0; x < 3; x++) {
-            if (board[startX + x][startY].equals(player) &&
-                    board[startX + x][startY + 1].equals(player) &&
-                    board[startX + x][startY + 2].equals(player)) {
-                return true;
-            }
-        }
-
-        // Check diagonals
-        if (board[startX][startY].equals(player) &&
-                board[startX + 1][startY + 1].equals(player) &&
-                board[startX + 2][startY + 2].equals(player)) {
-            return true;
-        }
-
-        if (board[startX + 2][startY].equals(player) &&
-                board[startX + 1][startY + 1].equals(player) &&
-                board[startX][startY + 2].equals(player)) {
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean opensBoard(IGameState state, IMove move) {
-        int subBoardX = move.getX() % 3;
-        int subBoardY = move.getY() % 3;
-        String[][] board = state.getField().getBoard();
-
-        for (int x = subBoardX * 3; x < (subBoardX + 1) * 3; x++) {
-            for (int y = subBoardY * 3; y < (subBoardY + 1) * 3; y++) {
-                if (board[x][y].equals(IField.EMPTY_FIELD)) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
-    }
     @Override
     public String getBotName() {
         return botName;
     }
-
-    private IGameState cloneGameState(IGameState state) {
-        return new GameState(state);
-    }
-}
\ No newline at end of file
+}
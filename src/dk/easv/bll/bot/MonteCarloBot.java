@@ -1,7 +1,6 @@
 package dk.easv.bll.bot;
 
-import dk.easv.bll.field.IField;
-import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.GameSimulator;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
 
@@ -15,20 +14,18 @@ public class MonteCarloBot extends ExampleSneakyBot {
     @Override
     public IMove doMove(IGameState state) {
         List<IMove> moves = state.getField().getAvailableMoves();
+        GameSimulator root = new GameSimulator(state);
+        GameSimulator simulator = new GameSimulator();
+        int me = root.getCurrentPlayer();
         int maxWins = -1;
         IMove bestMove = null;
 
         for (IMove move : moves) {
             int wins = 0;
             for (int i = 0; i < NUM_SIMULATIONS; i++) {
-                GameSimulator simulator = createSimulator(state);
-                simulator.updateGame(move);
-                while (simulator.getGameOver() == GameOverState.Active) {
-                    List<IMove> availableMoves = simulator.getCurrentState().getField().getAvailableMoves();
-                    IMove randomMove = availableMoves.get(rand.nextInt(availableMoves.size()));
-                    simulator.updateGame(randomMove);
-                }
-                if (simulator.getGameOver() == GameOverState.Win) {
+                simulator.copyFrom(root);
+                simulator.play(move);
+                if (simulator.randomPlayout(rand) == me) {
                     wins++;
                 }
             }
@@ -45,15 +42,4 @@ public class MonteCarloBot extends ExampleSneakyBot {
     public String getBotName() {
         return "MonteCarloBot-Tommy";
     }
-
-    private GameSimulator createSimulator(IGameState state) {
-        GameSimulator simulator = new GameSimulator(new GameState());
-        simulator.setGameOver(GameOverState.Active);
-        simulator.setCurrentPlayer(state.getMoveNumber() % 2);
-        simulator.getCurrentState().setRoundNumber(state.getRoundNumber());
-        simulator.getCurrentState().setMoveNumber(state.getMoveNumber());
-        simulator.getCurrentState().getField().setBoard(state.getField().getBoard());
-        simulator.getCurrentState().getField().setMacroboard(state.getField().getMacroboard());
-        return simulator;
-    }
-}
\ No newline at end of file
+}
@@ -1,10 +1,10 @@
 package dk.easv.bll.bot;
 
+import dk.easv.bll.game.BoardPatterns;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class PrioListOnSteroids extends LocalPrioritisedListBot {
@@ -20,38 +20,10 @@ public class PrioListOnSteroids extends LocalPrioritisedListBot {
     }
 
 
-    // Simplified version of checking if win. Check the GameManager class to see another similar solution
+    // Checks if placing the player on the move completes a line in its microboard, see BoardPatterns
     private boolean isWinningMove(IGameState state, IMove move, String player){
-        // Clones the array and all values to a new array, so we don't mess with the game
-        String[][] board = Arrays.stream(state.getField().getBoard()).map(String[]::clone).toArray(String[][]::new);
-
-        //Places the player in the game. Sort of a simulation.
-        board[move.getX()][move.getY()] = player;
-
-        int startX = move.getX()-(move.getX()%3);
-        if(board[startX][move.getY()]==player)
-            if (board[startX][move.getY()] == board[startX+1][move.getY()] &&
-                board[startX+1][move.getY()] == board[startX+2][move.getY()])
-                    return true;
-
-        int startY = move.getY()-(move.getY()%3);
-        if(board[move.getX()][startY]==player)
-            if (board[move.getX()][startY] == board[move.getX()][startY+1] &&
-                board[move.getX()][startY+1] == board[move.getX()][startY+2])
-                    return true;
-
-
-        if(board[startX][startY]==player)
-            if (board[startX][startY] == board[startX+1][startY+1] &&
-                    board[startX+1][startY+1] == board[startX+2][startY+2])
-                        return true;
-
-        if(board[startX][startY+2]==player)
-            if (board[startX][startY+2] == board[startX+1][startY+1] &&
-                    board[startX+1][startY+1] == board[startX+2][startY])
-                        return true;
-
-        return false;
+        int own = BoardPatterns.microboardMask(state.getField(), move.getX()/3, move.getY()/3, player);
+        return BoardPatterns.isWin(own | BoardPatterns.bit(move.getX()%3, move.getY()%3));
     }
     // Compile a list of all available winning moves
     private List<IMove> getWinningMoves(IGameState state){
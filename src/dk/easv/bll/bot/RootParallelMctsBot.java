@@ -0,0 +1,53 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+import dk.easv.bll.search.HeavyPlayoutPolicy;
+import dk.easv.bll.search.RootParallelSearch;
+
+/**
+ * UCT bot that searches one tree per thread, see RootParallelSearch.
+ *
+ * By default it searches on all cores, see SearchThreads. The simulation view, TournamentCli and
+ * League run one game per core and create their bots with one search thread each instead.
+ */
+public class RootParallelMctsBot implements IBot {
+    private static final String BOTNAME = "Root Parallel MCTS Bot";
+    public static final String THREADS_PROPERTY = SearchThreads.PROPERTY;
+
+    private final TimeManager timeManager = new TimeManager();
+    private final int threads;
+    private RootParallelSearch search; // Created on the first move, so listing the bot stays cheap
+
+    public RootParallelMctsBot() {
+        this(SearchThreads.getDefault());
+    }
+
+    /**
+     * @param threads The number of threads to search with
+     */
+    public RootParallelMctsBot(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        GameSimulator root = new GameSimulator(state);
+        timeManager.start(state, root);
+        if (search == null) {
+            search = new RootParallelSearch(threads);
+            search.setPlayoutPolicy(HeavyPlayoutPolicy.INSTANCE);
+        }
+        int cell = search.search(root, timeManager.getDeadlineNanos());
+        return cell < 0 ? null : Move.of(cell);
+    }
+
+    @Override
+    public String getBotName() {
+        return BOTNAME + " (" + threads + " threads)";
+    }
+}
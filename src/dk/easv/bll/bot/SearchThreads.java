@@ -0,0 +1,61 @@
+package dk.easv.bll.bot;
+
+import java.util.function.Supplier;
+
+/**
+ * The number of threads the parallel search bots (RootParallelMctsBot, TreeParallelMctsBot)
+ * search with when created with their no-arg constructor.
+ *
+ * A bot playing one game, e.g. against a human in the GUI, gets all cores. Runners playing many
+ * games at once already keep every core busy with games, so they create their bots inside
+ * withDefault(), e.g. with one thread each, instead of ending up with cores^2 busy threads.
+ * The system property uttt.search.threads overrides both.
+ *
+ * This is not a bot, the bot loader skips it.
+ */
+public final class SearchThreads {
+
+    /**
+     * System property with the number of search threads, overriding the default.
+     */
+    public static final String PROPERTY = "uttt.search.threads";
+
+    // Set by withDefault() on the thread creating the bots
+    private static final ThreadLocal<Integer> SCOPED_DEFAULT = new ThreadLocal<>();
+
+    private SearchThreads() {
+    }
+
+    /**
+     * @return uttt.search.threads if set, else the number given to withDefault() on this thread,
+     * else the number of cores
+     */
+    public static int getDefault() {
+        Integer property = Integer.getInteger(PROPERTY);
+        if (property != null)
+            return property;
+        Integer scoped = SCOPED_DEFAULT.get();
+        return scoped != null ? scoped : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs code, typically creating bots, with a different default number of search threads.
+     * @param threads The default for bots created by the code
+     * @param code The code to run
+     * @return What the code returns
+     */
+    public static <T> T withDefault(int threads, Supplier<T> code) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        Integer previous = SCOPED_DEFAULT.get();
+        SCOPED_DEFAULT.set(threads);
+        try {
+            return code.get();
+        } finally {
+            if (previous == null)
+                SCOPED_DEFAULT.remove();
+            else
+                SCOPED_DEFAULT.set(previous);
+        }
+    }
+}
@@ -20,7 +20,7 @@ import java.net.http.HttpResponse.BodyHandlers;
  * This client implementation requires the Google GSon library.
  *
  */
-public class TeacherBotREST implements IBot{
+public class TeacherBotREST implements IRemoteBot{
     private static final String BOT_NAME = "Teacher Bot (online)";
     // This bot requires a VPN connection to the EASV network
     private static final String SERVER_URI = "http://10.176.88.51:4567/doMove";
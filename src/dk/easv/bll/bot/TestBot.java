@@ -1,5 +1,6 @@
 package dk.easv.bll.bot;
 
+import dk.easv.bll.game.GameManager;
 import dk.easv.bll.game.GameState;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
@@ -12,10 +13,14 @@ public class TestBot implements IBot {
 
     @Override
     public IMove doMove(IGameState state) {
-        return minimax(state, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, true).move;
+        // One copy of the state per turn, the search plays and takes back moves on it
+        GameManager game = new GameManager(new GameState(state));
+        game.setCurrentPlayer(state.getMoveNumber() % 2);
+        return minimax(game, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, true).move;
     }
 
-    private ScoredMove minimax(IGameState state, int depth, int alpha, int beta, boolean maximizingPlayer) {
+    private ScoredMove minimax(GameManager game, int depth, int alpha, int beta, boolean maximizingPlayer) {
+        IGameState state = game.getCurrentState();
         //get a list of all available moves from the game state via the interface
         List<IMove> availableMoves = state.getField().getAvailableMoves();
 
@@ -35,10 +40,9 @@ public class TestBot implements IBot {
             IMove bestMove = null;
 
             for (IMove move : availableMoves) {
-                IGameState newState = cloneGameState(state);
-                newState.getField().getBoard()[move.getX()][move.getY()] = "0";
-
-                int eval = minimax(newState, depth - 1, alpha, beta, false).score;
+                game.makeMove(move);
+                int eval = minimax(game, depth - 1, alpha, beta, false).score;
+                game.undoMove();
                 if (eval > maxEval) {
                     maxEval = eval;
                     bestMove = move;
@@ -56,10 +60,9 @@ public class TestBot implements IBot {
             IMove bestMove = null;
 
             for (IMove move : availableMoves) {
-                IGameState newState = cloneGameState(state);
-                newState.getField().getBoard()[move.getX()][move.getY()] = "1";
-
-                int eval = minimax(newState, depth - 1, alpha, beta, true).score;
+                game.makeMove(move);
+                int eval = minimax(game, depth - 1, alpha, beta, true).score;
+                game.undoMove();
                 if (eval < minEval) {
                     minEval = eval;
                     bestMove = move;
@@ -128,8 +131,4 @@ public class TestBot implements IBot {
             this.score = score;
         }
     }
-
-    private IGameState cloneGameState(IGameState state) {
-        return new GameState(state);
-    }
 }
\ No newline at end of file
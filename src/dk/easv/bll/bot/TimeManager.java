@@ -0,0 +1,150 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.Zobrist;
+
+/**
+ * Keeps a bot inside the time it has per move, IGameState.getTimePerMove().
+ *
+ * start() sets a hard deadline: the time per move minus a safety margin for reading the state
+ * and returning the move. Given the position, it returns at once with a single legal move and
+ * otherwise spends all of it. The time per move is a limit for each move on its own, so time
+ * not used on one move can't be banked for a later critical one; cutting quiet moves short only
+ * throws that time away. setScaling(true) turns the cutting on anyway, e.g. to play faster
+ * games: then all the time is only spent when the position is critical (free choice of board,
+ * a move that sends the opponent to any board, or a microboard that can be won), and less in
+ * quiet positions with few moves, see budgetShare().
+ *
+ * isTimeUp() is meant to be called once per playout. It only reads the clock (System.nanoTime())
+ * every CHECK_INTERVAL calls, so it costs next to nothing. Bots that search each candidate
+ * move on its own split the time with startSlice().
+ *
+ * This is not a bot, the bot loader skips it.
+ */
+public class TimeManager {
+
+    public static final int DEFAULT_MARGIN_MS = 30;
+
+    // The clock is read on every CHECK_INTERVAL'th call of isTimeUp(), must be a power of 2
+    private static final int CHECK_INTERVAL = 32;
+    // Share of the time used in a quiet position, rising to all of it with 9 legal moves
+    private static final double QUIET_SHARE = 0.5;
+
+    private final long marginNanos;
+    private final int[] moveBuffer = new int[81];
+    private boolean scaling = false;
+    private long startNanos;
+    private long deadlineNanos;
+    private long sliceDeadlineNanos;
+    private int calls;
+    private boolean timeUp;
+
+    public TimeManager() {
+        this(DEFAULT_MARGIN_MS);
+    }
+
+    /**
+     * @param marginMs Time kept back from the time per move, for reading the state and returning the move
+     */
+    public TimeManager(int marginMs) {
+        this.marginNanos = marginMs * 1_000_000L;
+    }
+
+    /**
+     * Starts the clock for a move, allowing the whole time per move minus the margin.
+     * @param state The state given to doMove()
+     */
+    public void start(IGameState state) {
+        start(state, 1.0);
+    }
+
+    /**
+     * Starts the clock for a move, allowing the whole time per move minus the margin, or no time
+     * with a single legal move. With setScaling(true) the share from budgetShare() is allowed.
+     * @param state The state given to doMove()
+     * @param position The same position in a simulator
+     */
+    public void start(IGameState state, GameSimulator position) {
+        double share = budgetShare(position);
+        start(state, scaling || share == 0 ? share : 1.0);
+    }
+
+    /**
+     * @param scaling True to spend less time in quiet positions, see budgetShare(). Off by default.
+     */
+    public void setScaling(boolean scaling) {
+        this.scaling = scaling;
+    }
+
+    private void start(IGameState state, double share) {
+        startNanos = System.nanoTime();
+        long available = Math.max(0, state.getTimePerMove() * 1_000_000L - marginNanos);
+        deadlineNanos = startNanos + (long) (available * share);
+        sliceDeadlineNanos = deadlineNanos;
+        calls = 0;
+        timeUp = false;
+    }
+
+    /**
+     * @param position The position to move in
+     * @return The share of the time per move worth spending on it, 0 to 1
+     */
+    public double budgetShare(GameSimulator position) {
+        int count = position.isGameOver() ? 0 : position.getLegalMoves(moveBuffer);
+        if (count <= 1)
+            return 0;
+        if (position.getActiveBoard() == Zobrist.ANY_BOARD)
+            return 1;
+        int player = position.getCurrentPlayer();
+        for (int i = 0; i < count; i++) {
+            int cell = moveBuffer[i];
+            if (position.givesFreeChoice(cell) || position.winsMicroboard(player, cell)
+                    || position.winsMicroboard(1 - player, cell))
+                return 1;
+        }
+        return QUIET_SHARE + (1 - QUIET_SHARE) * Math.min(1.0, count / 9.0);
+    }
+
+    /**
+     * Gives the next part of the search a share of the time that is left, e.g. one candidate move
+     * out of the ones not searched yet. isTimeUp() then checks against the end of the slice.
+     * @param weight The weight of this part
+     * @param remainingWeight The total weight of this part and all the parts after it
+     */
+    public void startSlice(double weight, double remainingWeight) {
+        long now = System.nanoTime();
+        long remaining = Math.max(0, deadlineNanos - now);
+        double share = remainingWeight > 0 ? Math.min(1.0, weight / remainingWeight) : 1.0;
+        sliceDeadlineNanos = now + (long) (remaining * share);
+        calls = 0;
+        timeUp = false;
+    }
+
+    /**
+     * Cheap enough to call after every playout, the clock is only read now and then.
+     * @return True when the current slice, or the move if no slice was started, is out of time
+     */
+    public boolean isTimeUp() {
+        if (timeUp)
+            return true;
+        if ((calls++ & (CHECK_INTERVAL - 1)) != 0)
+            return false;
+        timeUp = System.nanoTime() >= sliceDeadlineNanos;
+        return timeUp;
+    }
+
+    /**
+     * @return The System.nanoTime() value at which the move must be done
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return Nanoseconds since start()
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
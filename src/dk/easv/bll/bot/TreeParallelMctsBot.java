@@ -0,0 +1,45 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+import dk.easv.bll.search.HeavyPlayoutPolicy;
+import dk.easv.bll.search.TreeParallelSearch;
+
+/**
+ * UCT bot where all threads search one shared tree, see TreeParallelSearch.
+ *
+ * The number of threads defaults to all cores, or what SearchThreads says, like RootParallelMctsBot.
+ */
+public class TreeParallelMctsBot implements IBot {
+    private static final String BOTNAME = "Tree Parallel MCTS Bot";
+
+    private final TimeManager timeManager = new TimeManager();
+    private final TreeParallelSearch search;
+
+    public TreeParallelMctsBot() {
+        this(SearchThreads.getDefault());
+    }
+
+    /**
+     * @param threads The number of threads to search with
+     */
+    public TreeParallelMctsBot(int threads) {
+        search = new TreeParallelSearch(threads);
+        search.setPlayoutPolicy(HeavyPlayoutPolicy.INSTANCE);
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        GameSimulator root = new GameSimulator(state);
+        timeManager.start(state, root);
+        int cell = search.search(root, timeManager.getDeadlineNanos());
+        return cell < 0 ? null : Move.of(cell);
+    }
+
+    @Override
+    public String getBotName() {
+        return BOTNAME + " (" + search.getThreads() + " threads)";
+    }
+}
@@ -0,0 +1,110 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+import dk.easv.bll.search.EndgameSolver;
+import dk.easv.bll.search.HeavyPlayoutPolicy;
+import dk.easv.bll.search.MctsSearch;
+import dk.easv.bll.search.OpeningBook;
+
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo Tree Search bot using UCT, see MctsSearch, with HeavyPlayoutPolicy playouts.
+ * The search tree is kept between moves, so the subtree below the opponent's reply is reused.
+ *
+ * When pondering is enabled it keeps growing the tree while the opponent thinks, so against
+ * a human taking seconds per move most of its next move is searched before doMove() is called.
+ *
+ * In the opening it plays the move from OpeningBook.getDefault() if there is a book file.
+ * Near the end of the game it first tries to solve the position exactly with EndgameSolver,
+ * using up to half of its time. A proven win or draw is played straight away; a proven loss,
+ * or no result in time, leaves the choice to the search, which picks the move most likely to
+ * make the opponent go wrong.
+ */
+public class UCTBot implements IPonderingBot {
+    private static final String BOTNAME = "UCT MCTS Bot";
+    // Playouts run between checks for stopPondering()
+    private static final int PONDER_BATCH = 64;
+    // Pondering stops by itself at this many playouts through the root, so a bot left pondering
+    // in an abandoned game does not keep a core busy
+    private static final int PONDER_LIMIT = 2_000_000;
+
+    private final TimeManager timeManager = new TimeManager();
+    private final EndgameSolver solver = new EndgameSolver();
+    private MctsSearch search; // Created on first use, so listing the bot stays cheap
+    private volatile boolean pondering = false;
+    private Thread ponderThread;
+
+    @Override
+    public IMove doMove(IGameState state) {
+        stopPondering();
+        GameSimulator root = new GameSimulator(state);
+        int bookMove = OpeningBook.getDefault().lookup(root);
+        if (bookMove >= 0)
+            return Move.of(bookMove);
+        timeManager.start(state, root);
+        if (solver.isApplicable(root)) {
+            long now = System.nanoTime();
+            EndgameSolver.Result result = solver.solve(root, now + (timeManager.getDeadlineNanos() - now) / 2);
+            if (result == EndgameSolver.Result.WIN || result == EndgameSolver.Result.DRAW)
+                return Move.of(solver.getBestMove());
+        }
+        MctsSearch search = getSearch();
+        search.setRoot(root);
+        search.search(timeManager.getDeadlineNanos());
+        int cell = search.getBestMove();
+        return cell < 0 ? null : Move.of(cell);
+    }
+
+    @Override
+    public synchronized void startPondering(IGameState state) {
+        stopPondering();
+        GameSimulator root = new GameSimulator(state);
+        if (root.isGameOver())
+            return;
+        MctsSearch search = getSearch();
+        pondering = true;
+        ponderThread = new Thread(() -> {
+            search.setRoot(root);
+            while (pondering && search.getRootVisits() < PONDER_LIMIT && !search.isRootProven())
+                search.searchIterations(PONDER_BATCH);
+        }, BOTNAME + " pondering");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    @Override
+    public synchronized void stopPondering() {
+        pondering = false;
+        if (ponderThread == null)
+            return;
+        // The search is not thread safe, so wait for the thread to finish even if interrupted
+        boolean interrupted = false;
+        while (ponderThread.isAlive()) {
+            try {
+                ponderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        ponderThread = null;
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private synchronized MctsSearch getSearch() {
+        if (search == null) {
+            search = new MctsSearch(new SplittableRandom());
+            search.setPlayoutPolicy(HeavyPlayoutPolicy.INSTANCE);
+        }
+        return search;
+    }
+
+    @Override
+    public String getBotName() {
+        return BOTNAME;
+    }
+}
@@ -0,0 +1,352 @@
+package dk.easv.bll.field;
+
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.IMoveVisitor;
+import dk.easv.bll.move.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An IField that stores the board as bitmasks instead of Strings.
+ *
+ * Each player owns one 81 bit mask, split over two longs. The cells are laid out
+ * microboard by microboard, so the 9 cells of a microboard are 9 consecutive bits:
+ * bit = microboard * 9 + local cell, where microboard = (x/3)*3 + y/3 and
+ * local cell = (x%3)*3 + y%3. Microboards 0-6 live in the low long, 7-8 in the high long.
+ * The macroboard is kept as four 9 bit masks (won by player 0, won by player 1, tied, available).
+ * BitboardFieldCheck, in the verify source root, checks that it answers every query the same
+ * as Field.
+ *
+ * The String[][] views returned by getBoard() and getMacroboard() are only created when
+ * somebody asks for them (the GUI and the older bots). Once handed out, the setters keep them
+ * up to date, and legacy code may still write directly into them: the views only ever hold the
+ * String constants matching the bits, so before every query a comparison of references finds
+ * anything written since, and only then are the Strings read back.
+ */
+public class BitboardField implements IField {
+
+    public static final String PLAYER_0 = "0";
+    public static final String PLAYER_1 = "1";
+    public static final String TIE = "TIE";
+
+    private static final int MICRO_MASK = 0x1FF;
+    private static final int LOW_MICROBOARDS = 7;
+
+    // Cell index (x*9+y) to bit index
+    private static final int[] CELL_TO_BIT = new int[81];
+
+    static {
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                CELL_TO_BIT[x * 9 + y] = ((x / 3) * 3 + y / 3) * 9 + (x % 3) * 3 + y % 3;
+            }
+    }
+
+    private final long[] low = new long[2];
+    private final long[] high = new long[2];
+    private final int[] macroWon = new int[2];
+    private int macroTied;
+    private int macroAvailable;
+
+    private String[][] boardView;
+    private String[][] macroView;
+
+    public BitboardField() {
+        reset();
+    }
+
+    /**
+     * Copies another field. Copying a BitboardField is a handful of word writes,
+     * any other IField is read through its String views.
+     * @param field The field to copy
+     */
+    public BitboardField(IField field) {
+        if (field instanceof BitboardField) {
+            BitboardField other = (BitboardField) field;
+            other.readBackViews();
+            low[0] = other.low[0];
+            low[1] = other.low[1];
+            high[0] = other.high[0];
+            high[1] = other.high[1];
+            macroWon[0] = other.macroWon[0];
+            macroWon[1] = other.macroWon[1];
+            macroTied = other.macroTied;
+            macroAvailable = other.macroAvailable;
+        }
+        else {
+            readBoard(field.getBoard());
+            readMacroboard(field.getMacroboard());
+        }
+    }
+
+    @Override
+    public void clearBoard() {
+        reset();
+    }
+
+    private void reset() {
+        low[0] = low[1] = 0;
+        high[0] = high[1] = 0;
+        macroWon[0] = macroWon[1] = 0;
+        macroTied = 0;
+        macroAvailable = MICRO_MASK;
+        boardView = null;
+        macroView = null;
+    }
+
+    @Override
+    public List<IMove> getAvailableMoves() {
+        List<IMove> availMoves = new ArrayList<>();
+        forEachAvailableMove((x, y) -> availMoves.add(Move.of(x, y)));
+        return availMoves;
+    }
+
+    @Override
+    public int getAvailableMoves(int[] buffer) {
+        readBackViews();
+        int count = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                int bit = CELL_TO_BIT[x * 9 + y];
+                if ((macroAvailable & (1 << bit / 9)) != 0 && !isOccupied(bit))
+                    buffer[count++] = x * 9 + y;
+            }
+        return count;
+    }
+
+    @Override
+    public void forEachAvailableMove(IMoveVisitor visitor) {
+        readBackViews();
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                int bit = CELL_TO_BIT[x * 9 + y];
+                if ((macroAvailable & (1 << bit / 9)) != 0 && !isOccupied(bit))
+                    visitor.visit(x, y);
+            }
+    }
+
+    @Override
+    public String getPlayerId(int column, int row) {
+        readBackViews();
+        int bit = CELL_TO_BIT[column * 9 + row];
+        if (isSet(0, bit)) return PLAYER_0;
+        if (isSet(1, bit)) return PLAYER_1;
+        return EMPTY_FIELD;
+    }
+
+    @Override
+    public void setPlayerId(int column, int row, String playerId) {
+        readBackViews();
+        int bit = CELL_TO_BIT[column * 9 + row];
+        clear(bit);
+        if (PLAYER_0.equals(playerId))
+            set(0, bit);
+        else if (PLAYER_1.equals(playerId))
+            set(1, bit);
+        if (boardView != null)
+            boardView[column][row] = cellToString(bit);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        readBackViews();
+        return (low[0] | low[1] | high[0] | high[1]) == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        readBackViews();
+        long fullLow = (1L << (LOW_MICROBOARDS * 9)) - 1;
+        long fullHigh = (1L << ((9 - LOW_MICROBOARDS) * 9)) - 1;
+        return (low[0] | low[1]) == fullLow && (high[0] | high[1]) == fullHigh;
+    }
+
+    @Override
+    public Boolean isInActiveMicroboard(int x, int y) {
+        readBackViews();
+        return (macroAvailable & (1 << ((x / 3) * 3 + y / 3))) != 0;
+    }
+
+    @Override
+    public String[][] getBoard() {
+        if (boardView == null) {
+            boardView = new String[9][9];
+            fillBoardView();
+        }
+        return boardView;
+    }
+
+    @Override
+    public String[][] getMacroboard() {
+        if (macroView == null) {
+            macroView = new String[3][3];
+            fillMacroView();
+        }
+        return macroView;
+    }
+
+    @Override
+    public void setBoard(String[][] board) {
+        readBoard(board);
+        if (boardView != null)
+            fillBoardView();
+    }
+
+    @Override
+    public void setMacroboard(String[][] macroboard) {
+        readMacroboard(macroboard);
+        if (macroView != null)
+            fillMacroView();
+    }
+
+    /**
+     * @param player 0 or 1
+     * @param microboard Microboard index, (x/3)*3 + y/3
+     * @return The 9 bit mask of the cells the player holds in the given microboard
+     */
+    public int getMicroboardMask(int player, int microboard) {
+        readBackViews();
+        if (microboard < LOW_MICROBOARDS)
+            return (int) (low[player] >>> (microboard * 9)) & MICRO_MASK;
+        return (int) (high[player] >>> ((microboard - LOW_MICROBOARDS) * 9)) & MICRO_MASK;
+    }
+
+    /**
+     * @param player 0 or 1
+     * @return 9 bit mask of the microboards won by the player
+     */
+    public int getMacroWonMask(int player) {
+        readBackViews();
+        return macroWon[player];
+    }
+
+    /**
+     * @return 9 bit mask of the tied microboards
+     */
+    public int getMacroTiedMask() {
+        readBackViews();
+        return macroTied;
+    }
+
+    /**
+     * @return 9 bit mask of the microboards that can be played in
+     */
+    public int getMacroAvailableMask() {
+        readBackViews();
+        return macroAvailable;
+    }
+
+    private boolean isSet(int player, int bit) {
+        if (bit < LOW_MICROBOARDS * 9)
+            return (low[player] & (1L << bit)) != 0;
+        return (high[player] & (1L << (bit - LOW_MICROBOARDS * 9))) != 0;
+    }
+
+    private boolean isOccupied(int bit) {
+        return isSet(0, bit) || isSet(1, bit);
+    }
+
+    private void set(int player, int bit) {
+        if (bit < LOW_MICROBOARDS * 9)
+            low[player] |= 1L << bit;
+        else
+            high[player] |= 1L << (bit - LOW_MICROBOARDS * 9);
+    }
+
+    private void clear(int bit) {
+        if (bit < LOW_MICROBOARDS * 9) {
+            low[0] &= ~(1L << bit);
+            low[1] &= ~(1L << bit);
+        }
+        else {
+            high[0] &= ~(1L << (bit - LOW_MICROBOARDS * 9));
+            high[1] &= ~(1L << (bit - LOW_MICROBOARDS * 9));
+        }
+    }
+
+    private String cellToString(int bit) {
+        if (isSet(0, bit)) return PLAYER_0;
+        if (isSet(1, bit)) return PLAYER_1;
+        return EMPTY_FIELD;
+    }
+
+    private String macroToString(int index) {
+        int bit = 1 << index;
+        if ((macroWon[0] & bit) != 0) return PLAYER_0;
+        if ((macroWon[1] & bit) != 0) return PLAYER_1;
+        if ((macroTied & bit) != 0) return TIE;
+        if ((macroAvailable & bit) != 0) return AVAILABLE_FIELD;
+        return EMPTY_FIELD;
+    }
+
+    private void readBoard(String[][] board) {
+        low[0] = low[1] = 0;
+        high[0] = high[1] = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                String value = board[x][y];
+                if (PLAYER_0.equals(value))
+                    set(0, CELL_TO_BIT[x * 9 + y]);
+                else if (PLAYER_1.equals(value))
+                    set(1, CELL_TO_BIT[x * 9 + y]);
+            }
+    }
+
+    private void readMacroboard(String[][] macroboard) {
+        macroWon[0] = macroWon[1] = 0;
+        macroTied = 0;
+        macroAvailable = 0;
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++) {
+                String value = macroboard[x][y];
+                int bit = 1 << (x * 3 + y);
+                if (PLAYER_0.equals(value)) macroWon[0] |= bit;
+                else if (PLAYER_1.equals(value)) macroWon[1] |= bit;
+                else if (TIE.equals(value)) macroTied |= bit;
+                else if (AVAILABLE_FIELD.equals(value)) macroAvailable |= bit;
+            }
+    }
+
+    private void fillBoardView() {
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                boardView[x][y] = cellToString(CELL_TO_BIT[x * 9 + y]);
+    }
+
+    private void fillMacroView() {
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++)
+                macroView[x][y] = macroToString(x * 3 + y);
+    }
+
+    // Reads back anything legacy code wrote into the handed out views
+    private void readBackViews() {
+        if (boardView != null && !boardViewMatches()) {
+            readBoard(boardView);
+            fillBoardView();
+        }
+        if (macroView != null && !macroViewMatches()) {
+            readMacroboard(macroView);
+            fillMacroView();
+        }
+    }
+
+    // The views hold the very String objects cellToString() and macroToString() return,
+    // so comparing references is enough to find a write
+    private boolean boardViewMatches() {
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                if (boardView[x][y] != cellToString(CELL_TO_BIT[x * 9 + y]))
+                    return false;
+        return true;
+    }
+
+    private boolean macroViewMatches() {
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++)
+                if (macroView[x][y] != macroToString(x * 3 + y))
+                    return false;
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package dk.easv.bll.field;
 
 import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.IMoveVisitor;
 import dk.easv.bll.move.Move;
 
 import java.util.ArrayList;
@@ -35,13 +36,35 @@ public class Field implements IField{
         for (int i = 0; i < board.length; i++)
             for (int k = 0; k < board[i].length; k++) {
                 if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD)) {
-                    availMoves.add(new Move(i,k));
+                    availMoves.add(Move.of(i,k));
                 }
         }
 
         return availMoves;
     }
 
+    @Override
+    public int getAvailableMoves(int[] buffer) {
+        int count = 0;
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(macroBoard[i/3][k/3].equals(AVAILABLE_FIELD) && board[i][k].equals(EMPTY_FIELD)) {
+                    buffer[count++] = i*9 + k;
+                }
+            }
+        return count;
+    }
+
+    @Override
+    public void forEachAvailableMove(IMoveVisitor visitor) {
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(macroBoard[i/3][k/3].equals(AVAILABLE_FIELD) && board[i][k].equals(EMPTY_FIELD)) {
+                    visitor.visit(i, k);
+                }
+            }
+    }
+
     @Override
     public String getPlayerId(int column, int row) {
         return board[column][row];
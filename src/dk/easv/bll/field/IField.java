@@ -2,6 +2,7 @@ package dk.easv.bll.field;
 
 import java.util.List;
 import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.IMoveVisitor;
 
 /**
  *
@@ -24,6 +25,33 @@ public interface IField {
      */
     List<IMove> getAvailableMoves();
 
+    /**
+     * Allocation free version of getAvailableMoves(). Writes the available moves
+     * into the buffer as cell indexes (x*9 + y), in the same order as getAvailableMoves().
+     * @param buffer Receives the moves, must have room for 81 entries
+     * @return The number of moves written to the buffer
+     */
+    default int getAvailableMoves(int[] buffer) {
+        int count = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                if (isInActiveMicroboard(x, y) && getPlayerId(x, y).equals(EMPTY_FIELD))
+                    buffer[count++] = x * 9 + y;
+        return count;
+    }
+
+    /**
+     * Calls the visitor for every available move, in the same order as getAvailableMoves(),
+     * without creating any IMove objects.
+     * @param visitor Called with the column and row of each available move
+     */
+    default void forEachAvailableMove(IMoveVisitor visitor) {
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                if (isInActiveMicroboard(x, y) && getPlayerId(x, y).equals(EMPTY_FIELD))
+                    visitor.visit(x, y);
+    }
+
     /**
      * Returns the player id on given column and row
      * @param column Column
@@ -32,6 +60,16 @@ public interface IField {
      */
     String getPlayerId(int column, int row);
 
+    /**
+     * Places the player id on given column and row
+     * @param column Column
+     * @param row Row
+     * @param playerId The player id, or EMPTY_FIELD to clear the cell
+     */
+    default void setPlayerId(int column, int row, String playerId) {
+        getBoard()[column][row] = playerId;
+    }
+
     boolean isEmpty();
 
     /**
@@ -0,0 +1,137 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+
+/**
+ * Win, tie and threat detection for a single 3x3 board (a microboard or the macroboard).
+ *
+ * A 3x3 board is encoded as a 9 bit mask per player, where the cell (x,y) is bit x*3 + y.
+ * All 512 masks are checked once when the class is loaded, so every query afterwards is a
+ * table lookup instead of scanning rows, columns and diagonals with String compares.
+ * This is the same encoding BitboardField uses for each of its microboards.
+ */
+public final class BoardPatterns {
+
+    public static final int FULL_MASK = 0x1FF;
+
+    // The 8 lines of a 3x3 board: 3 rows, 3 columns and 2 diagonals
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    // WIN[mask] is true when the mask contains a full line
+    private static final boolean[] WIN = new boolean[512];
+    // COMPLETING[mask] holds the cells that would complete a line if added to mask
+    private static final int[] COMPLETING = new int[512];
+
+    static {
+        for (int mask = 0; mask < 512; mask++) {
+            for (int line : LINES)
+                if ((mask & line) == line)
+                    WIN[mask] = true;
+        }
+        for (int mask = 0; mask < 512; mask++) {
+            int completing = 0;
+            for (int cell = 0; cell < 9; cell++) {
+                int bit = 1 << cell;
+                if ((mask & bit) == 0 && WIN[mask | bit])
+                    completing |= bit;
+            }
+            COMPLETING[mask] = completing;
+        }
+    }
+
+    private BoardPatterns() {
+    }
+
+    /**
+     * @param x Column within the 3x3 board (0-2)
+     * @param y Row within the 3x3 board (0-2)
+     * @return The bit representing the cell
+     */
+    public static int bit(int x, int y) {
+        return 1 << (x * 3 + y);
+    }
+
+    /**
+     * @param mask The cells held by one player
+     * @return true if the cells contain a row, column or diagonal
+     */
+    public static boolean isWin(int mask) {
+        return WIN[mask];
+    }
+
+    /**
+     * @param mask0 The cells held by player 0
+     * @param mask1 The cells held by player 1
+     * @return true if the board is full and nobody has a line
+     */
+    public static boolean isTie(int mask0, int mask1) {
+        return (mask0 | mask1) == FULL_MASK && !WIN[mask0] && !WIN[mask1];
+    }
+
+    /**
+     * @param own The cells held by the player to check
+     * @param opponent The cells held by the other player
+     * @return The empty cells where the player would complete a line (the player's threats)
+     */
+    public static int winningCells(int own, int opponent) {
+        return COMPLETING[own] & ~opponent & FULL_MASK;
+    }
+
+    /**
+     * @param own The cells held by the player to check
+     * @param opponent The cells held by the other player
+     * @return true if the player can complete a line with one more move
+     */
+    public static boolean hasThreat(int own, int opponent) {
+        return winningCells(own, opponent) != 0;
+    }
+
+    /**
+     * Reads one microboard of a field as a 9 bit mask.
+     * @param field The field to read
+     * @param microX Column of the microboard on the macroboard (0-2)
+     * @param microY Row of the microboard on the macroboard (0-2)
+     * @param playerId The player id, as stored on the board
+     * @return The cells of the microboard held by the player
+     */
+    public static int microboardMask(IField field, int microX, int microY, String playerId) {
+        if (field instanceof BitboardField) {
+            int player = playerIndex(playerId);
+            if (player < 0)
+                return 0;
+            return ((BitboardField) field).getMicroboardMask(player, microX * 3 + microY);
+        }
+        int mask = 0;
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++)
+                if (field.getPlayerId(microX * 3 + x, microY * 3 + y).equals(playerId))
+                    mask |= bit(x, y);
+        return mask;
+    }
+
+    /**
+     * Reads a 3x3 String board, e.g. the macroboard, as a 9 bit mask.
+     * @param board The 3x3 board
+     * @param value The value to look for
+     * @return The cells holding the value
+     */
+    public static int mask(String[][] board, String value) {
+        int mask = 0;
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++)
+                if (board[x][y].equals(value))
+                    mask |= bit(x, y);
+        return mask;
+    }
+
+    private static int playerIndex(String playerId) {
+        if (BitboardField.PLAYER_0.equals(playerId)) return 0;
+        if (BitboardField.PLAYER_1.equals(playerId)) return 1;
+        return -1;
+    }
+}
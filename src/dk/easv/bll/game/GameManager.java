@@ -1,9 +1,9 @@
 package dk.easv.bll.game;
 
 import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.IPonderingBot;
 import dk.easv.bll.field.IField;
 import dk.easv.bll.move.IMove;
-import dk.easv.bll.move.Move;
 
 /**
  * This is a proposed GameManager for Ultimate Tic-Tac-Toe,
@@ -38,9 +38,28 @@ public class GameManager {
     private IBot bot = null;
     private IBot bot2 = null;
     private volatile GameOverState gameOver = GameOverState.Active;
+    private UndoStack undoStack = null;
+    private final String[][] macroBuffer = new String[3][3];
+    private boolean ponderingEnabled = false;
 
     public void setGameOver(GameOverState state) {
         gameOver = state;
+        if (state != GameOverState.Active)
+            stopPondering();
+    }
+
+    /**
+     * Lets bots that implement IPonderingBot think while their opponent is to move.
+     * Off by default, as a pondering bot takes CPU time from the other side.
+     * @param enabled True to let bots ponder
+     */
+    public void setPonderingEnabled(boolean enabled) {
+        ponderingEnabled = enabled;
+        if (!enabled)
+            stopPondering();
+    }
+    public boolean isPonderingEnabled() {
+        return ponderingEnabled;
     }
     public GameOverState getGameOver() {
         return gameOver;
@@ -110,9 +129,44 @@ public class GameManager {
         
         updateBoard(move);
         currentPlayer = (currentPlayer + 1) % 2;
+        if (gameOver != GameOverState.Active)
+            stopPondering();
         
         return true;
     }
+
+    /**
+     * Plays a move like updateGame(IMove), but remembers what it changed so it can be
+     * taken back with undoMove(). Meant for searching the game tree in place instead of
+     * cloning the game state for every move that is tried.
+     * @param move The move to play
+     * @return Returns true if the move was legal and played, false otherwise.
+     */
+    public boolean makeMove(IMove move)
+    {
+        if(!verifyMoveLegality(move))
+            return false;
+
+        if(undoStack == null)
+            undoStack = new UndoStack();
+        undoStack.push(move, currentState, currentPlayer, gameOver);
+
+        updateBoard(move);
+        currentPlayer = (currentPlayer + 1) % 2;
+        return true;
+    }
+
+    /**
+     * Takes back the last move played with makeMove(IMove), restoring the board, macroboard,
+     * game over state, current player, the move and round numbers and the Zobrist key.
+     * @throws IllegalStateException if there is no move to undo
+     */
+    public void undoMove()
+    {
+        if(undoStack == null || undoStack.size == 0)
+            throw new IllegalStateException("No moves to undo");
+        undoStack.pop(this);
+    }
     
     /**
      * Non-User driven input, e.g. an update for playing a bot move.
@@ -126,13 +180,11 @@ public class GameManager {
         //Check if player is bot, if so, get bot input and update the state based on that.
         if(mode == GameMode.HumanVsBot && currentPlayer == 1 && playerGoesFirst)
         {
-             IMove botMove = bot.doMove(new GameState(currentState));
-             return updateGame(botMove);
+             return playBotMove(bot);
         }
         else if(mode == GameMode.HumanVsBot && !playerGoesFirst && currentPlayer == 0)
         {
-            IMove botMove = bot.doMove(new GameState(currentState));
-            return updateGame(botMove);
+            return playBotMove(bot);
         }
         
         //Check bot is not equal to null, and throw an exception if it is.
@@ -145,13 +197,38 @@ public class GameManager {
             assert(bot != null);
             assert(bot2 != null);
 
-            IMove botMove = currentPlayer == 0 ? bot.doMove(new GameState(currentState)) : bot2.doMove(new GameState(currentState));
-
-            return updateGame(botMove);
+            return playBotMove(currentPlayer == 0 ? bot : bot2);
         }
         return false;
     }
 
+    /**
+     * Asks the bot for its move and plays it. If pondering is enabled, a pondering bot is
+     * stopped before it is asked and started again once its move has been played.
+     * @param player The bot to move
+     * @return Returns true if the move was legal, false otherwise.
+     */
+    private Boolean playBotMove(IBot player)
+    {
+        if (player instanceof IPonderingBot)
+            ((IPonderingBot) player).stopPondering();
+
+        IMove botMove = player.doMove(new GameState(currentState));
+        Boolean valid = updateGame(botMove);
+
+        if (valid && ponderingEnabled && gameOver == GameOverState.Active && player instanceof IPonderingBot)
+            ((IPonderingBot) player).startPondering(new GameState(currentState));
+        return valid;
+    }
+
+    private void stopPondering()
+    {
+        if (bot instanceof IPonderingBot)
+            ((IPonderingBot) bot).stopPondering();
+        if (bot2 instanceof IPonderingBot)
+            ((IPonderingBot) bot2).stopPondering();
+    }
+
 
 
     private Boolean verifyMoveLegality(IMove move)
@@ -162,7 +239,7 @@ public class GameManager {
         if(isValid && (move.getX() < 0 || 9 <= move.getX())) isValid = false;
         if(isValid && (move.getY() < 0 || 9 <= move.getY())) isValid = false;
 
-        if(isValid && !field.getBoard()[move.getX()][move.getY()].equals(IField.EMPTY_FIELD))
+        if(isValid && !field.getPlayerId(move.getX(), move.getY()).equals(IField.EMPTY_FIELD))
             isValid=false;
 
         return isValid;
@@ -170,56 +247,61 @@ public class GameManager {
     
     private void updateBoard(IMove move)
     {
-        String[][] board = currentState.getField().getBoard();
-        board[move.getX()][move.getY()]=currentPlayer+"";
+        IField field = currentState.getField();
+        int previousActive = Zobrist.activeIndex(field.getMacroboard());
+        field.setPlayerId(move.getX(), move.getY(), currentPlayer+"");
         currentState.setMoveNumber(currentState.getMoveNumber() + 1);
         if(currentState.getMoveNumber() % 2 == 0) { currentState.setRoundNumber(currentState.getRoundNumber() + 1); }
-        checkAndUpdateIfWin(move);
-        updateMacroboard(move);
+        currentState.setZobristKey(currentState.getZobristKey()
+                ^ Zobrist.cell(currentPlayer, move.getX()*9 + move.getY())
+                ^ Zobrist.side());
+        // The macroboard is changed in a copy and written back, fields don't read back their views
+        String[][] macroBoard = macroBuffer;
+        String[][] current = field.getMacroboard();
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++)
+                macroBoard[i][k] = current[i][k];
+        checkAndUpdateIfWin(move, macroBoard);
+        updateMacroboard(move, previousActive, macroBoard);
+        field.setMacroboard(macroBoard);
 
     }
 
-    private void checkAndUpdateIfWin(IMove move) {
-        String[][] macroBoard = currentState.getField().getMacroboard();
+    /**
+     * Updates the macroboard if the move won or filled its microboard, and ends the game
+     * if that decided the macroboard. Uses the BoardPatterns lookup tables.
+     * @param move The move just played by the current player
+     * @param macroBoard Copy of the macroboard to update
+     */
+    private void checkAndUpdateIfWin(IMove move, String[][] macroBoard) {
+        IField field = currentState.getField();
         int macroX = move.getX()/3;
         int macroY = move.getY()/3;
 
         if(macroBoard[macroX][macroY].equals(IField.EMPTY_FIELD) ||
                 macroBoard[macroX][macroY].equals(IField.AVAILABLE_FIELD) ) {
 
-            String[][] board = getCurrentState().getField().getBoard();
+            String player = currentPlayer + "";
+            String opponent = (1 - currentPlayer) + "";
+            int own = BoardPatterns.microboardMask(field, macroX, macroY, player);
+            int other = BoardPatterns.microboardMask(field, macroX, macroY, opponent);
 
-            if(isWin(board,move, ""+currentPlayer))
-                macroBoard[macroX][macroY] = currentPlayer + "";
-            else if(isTie(board,move))
+            if(BoardPatterns.isWin(own))
+                macroBoard[macroX][macroY] = player;
+            else if(BoardPatterns.isTie(own, other))
                 macroBoard[macroX][macroY] = "TIE";
-            
+
             //Check macro win
-            if(isWin(macroBoard,new Move(macroX,macroY), ""+currentPlayer))
+            int openBoards = BoardPatterns.mask(macroBoard, IField.EMPTY_FIELD)
+                    | BoardPatterns.mask(macroBoard, IField.AVAILABLE_FIELD);
+            if(BoardPatterns.isWin(BoardPatterns.mask(macroBoard, player)))
                 gameOver = GameOverState.Win;
-            else if(isTie(macroBoard,new Move(macroX,macroY)))
+            else if(openBoards == 0)
                 gameOver = GameOverState.Tie;
         }
 
     }
 
-    private boolean isTie(String[][] board, IMove move){
-        int localX = move.getX() % 3;
-        int localY = move.getY() % 3;
-        int startX = move.getX() - (localX);
-        int startY = move.getY() - (localY);
-
-        for (int i = startX; i < startX+3; i++) {
-            for (int k = startY; k < startY+3; k++) {
-                if(board[i][k].equals(IField.AVAILABLE_FIELD) ||
-                        board[i][k].equals(IField.EMPTY_FIELD) )
-                    return false;
-            }
-        }
-        return true;
-    }
-
-
     public static boolean isWin(String[][] board, IMove move, String currentPlayer){
         int localX = move.getX() % 3;
         int localY = move.getY() % 3;
@@ -263,9 +345,15 @@ public class GameManager {
         return false;
     }
     
-    private void updateMacroboard(IMove move)
+    /**
+     * Marks the microboard(s) the next player may play in, and moves the active
+     * microboard part of the Zobrist key from the previous to the new constraint.
+     * @param move The move just played
+     * @param previousActive Zobrist active index from before the move
+     * @param macroBoard Copy of the macroboard to update
+     */
+    private void updateMacroboard(IMove move, int previousActive, String[][] macroBoard)
     {
-        String[][] macroBoard = currentState.getField().getMacroboard();
         for (int i = 0; i < macroBoard.length; i++)
             for (int k = 0; k < macroBoard[i].length; k++) {
                 if(macroBoard[i][k].equals(IField.AVAILABLE_FIELD))
@@ -285,5 +373,50 @@ public class GameManager {
                         macroBoard[i][k] = IField.AVAILABLE_FIELD;
                 }
         }
+        currentState.setZobristKey(currentState.getZobristKey()
+                ^ Zobrist.active(previousActive)
+                ^ Zobrist.active(Zobrist.activeIndex(macroBoard)));
+    }
+
+    /**
+     * Everything makeMove(IMove) changes, stored in preallocated arrays so making and
+     * undoing moves does not allocate. A game has at most 81 moves.
+     */
+    private static class UndoStack {
+        private final int[] moves = new int[81];
+        private final int[] players = new int[81];
+        private final int[] moveNumbers = new int[81];
+        private final int[] roundNumbers = new int[81];
+        private final long[] zobristKeys = new long[81];
+        private final GameOverState[] gameOvers = new GameOverState[81];
+        private final String[][][] macroboards = new String[81][3][3];
+        private int size = 0;
+
+        private void push(IMove move, IGameState state, int player, GameOverState gameOver) {
+            String[][] macroBoard = state.getField().getMacroboard();
+            String[][] saved = macroboards[size];
+            for (int i = 0; i < 3; i++)
+                for (int k = 0; k < 3; k++)
+                    saved[i][k] = macroBoard[i][k];
+            moves[size] = move.getX() * 9 + move.getY();
+            players[size] = player;
+            moveNumbers[size] = state.getMoveNumber();
+            roundNumbers[size] = state.getRoundNumber();
+            zobristKeys[size] = state.getZobristKey();
+            gameOvers[size] = gameOver;
+            size++;
+        }
+
+        private void pop(GameManager game) {
+            size--;
+            IGameState state = game.currentState;
+            state.getField().setPlayerId(moves[size] / 9, moves[size] % 9, IField.EMPTY_FIELD);
+            state.getField().setMacroboard(macroboards[size]);
+            state.setMoveNumber(moveNumbers[size]);
+            state.setRoundNumber(roundNumbers[size]);
+            state.setZobristKey(zobristKeys[size]);
+            game.currentPlayer = players[size];
+            game.gameOver = gameOvers[size];
+        }
     }
 }
@@ -0,0 +1,506 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+import dk.easv.bll.move.IMove;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A fast implementation of the game rules for bots that simulate games.
+ *
+ * The whole game is kept in a few ints: a 9 bit mask per player per microboard,
+ * 9 bit masks for the won and tied microboards and for the microboards that can be
+ * played in next, plus the player to move, the move counters and the result.
+ * Moves are cell indexes, x*9 + y, the same as Move.getIndex() and IField.getAvailableMoves(int[]).
+ *
+ * The rules are the same as in GameManager (GameSimulatorCheck in the verify source root plays
+ * random games on both to check this), so bots no longer need their own copy of them. Playing a
+ * move or a whole random game does not allocate, and a simulator can be reset from another with
+ * copyFrom() before every playout.
+ */
+public final class GameSimulator {
+
+    public static final int NO_WINNER = -1;
+
+    private static final int FULL = BoardPatterns.FULL_MASK;
+
+    // Cell index (x*9+y) to microboard index ((x/3)*3 + y/3) and to the cell within it ((x%3)*3 + y%3)
+    private static final int[] CELL_MICRO = new int[81];
+    private static final int[] CELL_LOCAL = new int[81];
+    // Microboard * 9 + cell within it, back to cell index
+    private static final int[] MICRO_LOCAL_CELL = new int[81];
+
+    static {
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                int micro = (x / 3) * 3 + y / 3;
+                int local = (x % 3) * 3 + y % 3;
+                CELL_MICRO[x * 9 + y] = micro;
+                CELL_LOCAL[x * 9 + y] = local;
+                MICRO_LOCAL_CELL[micro * 9 + local] = x * 9 + y;
+            }
+    }
+
+    // boards[player * 9 + micro] holds the cells of the microboard owned by the player
+    private final int[] boards = new int[18];
+    private final int[] macroWon = new int[2];
+    private int macroTied;
+    private int availableBoards;
+    private int currentPlayer;
+    private int moveNumber;
+    private int roundNumber;
+    private GameManager.GameOverState gameOver;
+    private int winner;
+    private long zobristKey;
+
+    /**
+     * Creates a simulator for an empty board.
+     */
+    public GameSimulator() {
+        availableBoards = FULL;
+        gameOver = GameManager.GameOverState.Active;
+        winner = NO_WINNER;
+        zobristKey = Zobrist.active(Zobrist.ANY_BOARD);
+    }
+
+    /**
+     * Creates a simulator for the given state. The player to move is taken from the move number.
+     * @param state The state to read
+     */
+    public GameSimulator(IGameState state) {
+        IField field = state.getField();
+        if (field instanceof BitboardField) {
+            BitboardField bitboard = (BitboardField) field;
+            for (int micro = 0; micro < 9; micro++) {
+                boards[micro] = bitboard.getMicroboardMask(0, micro);
+                boards[9 + micro] = bitboard.getMicroboardMask(1, micro);
+            }
+        }
+        else {
+            for (int x = 0; x < 9; x++)
+                for (int y = 0; y < 9; y++) {
+                    String id = field.getPlayerId(x, y);
+                    if (id.equals(BitboardField.PLAYER_0))
+                        boards[CELL_MICRO[x * 9 + y]] |= 1 << CELL_LOCAL[x * 9 + y];
+                    else if (id.equals(BitboardField.PLAYER_1))
+                        boards[9 + CELL_MICRO[x * 9 + y]] |= 1 << CELL_LOCAL[x * 9 + y];
+                }
+        }
+        String[][] macroboard = field.getMacroboard();
+        macroWon[0] = BoardPatterns.mask(macroboard, BitboardField.PLAYER_0);
+        macroWon[1] = BoardPatterns.mask(macroboard, BitboardField.PLAYER_1);
+        macroTied = BoardPatterns.mask(macroboard, BitboardField.TIE);
+        availableBoards = BoardPatterns.mask(macroboard, IField.AVAILABLE_FIELD);
+        moveNumber = state.getMoveNumber();
+        roundNumber = state.getRoundNumber();
+        currentPlayer = moveNumber % 2;
+
+        winner = NO_WINNER;
+        gameOver = GameManager.GameOverState.Active;
+        if (BoardPatterns.isWin(macroWon[0]))
+            winner = 0;
+        else if (BoardPatterns.isWin(macroWon[1]))
+            winner = 1;
+        if (winner != NO_WINNER)
+            gameOver = GameManager.GameOverState.Win;
+        else if (getDecidedBoards() == FULL)
+            gameOver = GameManager.GameOverState.Tie;
+        zobristKey = computeZobristKey();
+    }
+
+    /**
+     * Makes this simulator an exact copy of another, without allocating.
+     * @param other The simulator to copy
+     */
+    public void copyFrom(GameSimulator other) {
+        System.arraycopy(other.boards, 0, boards, 0, boards.length);
+        macroWon[0] = other.macroWon[0];
+        macroWon[1] = other.macroWon[1];
+        macroTied = other.macroTied;
+        availableBoards = other.availableBoards;
+        currentPlayer = other.currentPlayer;
+        moveNumber = other.moveNumber;
+        roundNumber = other.roundNumber;
+        gameOver = other.gameOver;
+        winner = other.winner;
+        zobristKey = other.zobristKey;
+    }
+
+    /**
+     * @return A new simulator in the same state
+     */
+    public GameSimulator copy() {
+        GameSimulator copy = new GameSimulator();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Writes the simulated position to a game state, e.g. to hand it to a bot.
+     * @param state The state to overwrite
+     */
+    public void copyTo(IGameState state) {
+        String[][] board = new String[9][9];
+        for (int cell = 0; cell < 81; cell++) {
+            int bit = 1 << CELL_LOCAL[cell];
+            int micro = CELL_MICRO[cell];
+            if ((boards[micro] & bit) != 0)
+                board[cell / 9][cell % 9] = BitboardField.PLAYER_0;
+            else if ((boards[9 + micro] & bit) != 0)
+                board[cell / 9][cell % 9] = BitboardField.PLAYER_1;
+            else
+                board[cell / 9][cell % 9] = IField.EMPTY_FIELD;
+        }
+        String[][] macroboard = new String[3][3];
+        for (int micro = 0; micro < 9; micro++) {
+            int bit = 1 << micro;
+            String value = IField.EMPTY_FIELD;
+            if ((macroWon[0] & bit) != 0) value = BitboardField.PLAYER_0;
+            else if ((macroWon[1] & bit) != 0) value = BitboardField.PLAYER_1;
+            else if ((macroTied & bit) != 0) value = BitboardField.TIE;
+            else if ((availableBoards & bit) != 0) value = IField.AVAILABLE_FIELD;
+            macroboard[micro / 3][micro % 3] = value;
+        }
+        state.getField().setBoard(board);
+        state.getField().setMacroboard(macroboard);
+        state.setMoveNumber(moveNumber);
+        state.setRoundNumber(roundNumber);
+        state.setZobristKey(zobristKey);
+    }
+
+    /**
+     * @return A new GameState holding the simulated position
+     */
+    public GameState toGameState() {
+        GameState state = new GameState();
+        copyTo(state);
+        return state;
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
+    public GameManager.GameOverState getGameOver() {
+        return gameOver;
+    }
+
+    public boolean isGameOver() {
+        return gameOver != GameManager.GameOverState.Active;
+    }
+
+    /**
+     * @return The Zobrist key of the position, the same key a GameState gets from the GameManager
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return 0 or 1 if that player won the game, otherwise NO_WINNER
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * @param player 0 or 1
+     * @param micro Microboard index, (x/3)*3 + y/3
+     * @return The 9 bit mask of the cells the player holds in the microboard
+     */
+    public int getMicroboard(int player, int micro) {
+        return boards[player * 9 + micro];
+    }
+
+    /**
+     * @param player 0 or 1
+     * @return 9 bit mask of the microboards won by the player
+     */
+    public int getMacroWon(int player) {
+        return macroWon[player];
+    }
+
+    /**
+     * @return 9 bit mask of the tied microboards
+     */
+    public int getMacroTied() {
+        return macroTied;
+    }
+
+    /**
+     * @return 9 bit mask of the microboards that are won or tied
+     */
+    public int getDecidedBoards() {
+        return macroWon[0] | macroWon[1] | macroTied;
+    }
+
+    /**
+     * @return The microboard the next move is limited to, or Zobrist.ANY_BOARD for free choice
+     */
+    public int getActiveBoard() {
+        return Zobrist.activeIndex(availableBoards, ~getDecidedBoards() & FULL);
+    }
+
+    /**
+     * @return 9 bit mask of the microboards the current player may play in, 0 when the game is over
+     */
+    public int getAvailableBoards() {
+        return isGameOver() ? 0 : availableBoards;
+    }
+
+    /**
+     * @param micro Microboard index
+     * @return 9 bit mask of the empty cells in the microboard
+     */
+    public int getFreeCells(int micro) {
+        return ~(boards[micro] | boards[9 + micro]) & FULL;
+    }
+
+    /**
+     * @param micro Microboard index
+     * @return 9 bit mask of the cells the current player may play in the microboard (the legal-move mask)
+     */
+    public int getLegalCells(int micro) {
+        return (getAvailableBoards() & (1 << micro)) != 0 ? getFreeCells(micro) : 0;
+    }
+
+    /**
+     * Writes the legal moves, as cell indexes, into the buffer.
+     * @param buffer Receives the moves, must have room for 81 entries
+     * @return The number of legal moves
+     */
+    public int getLegalMoves(int[] buffer) {
+        int count = 0;
+        int available = getAvailableBoards();
+        while (available != 0) {
+            int micro = Integer.numberOfTrailingZeros(available);
+            available &= available - 1;
+            int free = getFreeCells(micro);
+            while (free != 0) {
+                buffer[count++] = MICRO_LOCAL_CELL[micro * 9 + Integer.numberOfTrailingZeros(free)];
+                free &= free - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of legal moves
+     */
+    public int countLegalMoves() {
+        int count = 0;
+        int available = getAvailableBoards();
+        while (available != 0) {
+            int micro = Integer.numberOfTrailingZeros(available);
+            available &= available - 1;
+            count += Integer.bitCount(getFreeCells(micro));
+        }
+        return count;
+    }
+
+    /**
+     * @param cell Cell index, x*9 + y
+     * @return true if the current player may play the cell
+     */
+    public boolean isLegal(int cell) {
+        if (cell < 0 || 81 <= cell)
+            return false;
+        return (getLegalCells(CELL_MICRO[cell]) & (1 << CELL_LOCAL[cell])) != 0;
+    }
+
+    /**
+     * @param player 0 or 1
+     * @param cell Cell index, x*9 + y
+     * @return true if the player would win the cell's microboard by playing it
+     */
+    public boolean winsMicroboard(int player, int cell) {
+        int micro = CELL_MICRO[cell];
+        return BoardPatterns.isWin(boards[player * 9 + micro] | (1 << CELL_LOCAL[cell]));
+    }
+
+    /**
+     * @param cell Cell index, x*9 + y
+     * @return true if playing the cell lets the opponent choose freely where to play next,
+     * because it sends them to a microboard that is (or by this move becomes) won or tied
+     */
+    public boolean givesFreeChoice(int cell) {
+        int micro = CELL_MICRO[cell];
+        int own = boards[currentPlayer * 9 + micro] | (1 << CELL_LOCAL[cell]);
+        int decided = getDecidedBoards();
+        if (BoardPatterns.isWin(own) || (own | boards[(1 - currentPlayer) * 9 + micro]) == FULL)
+            decided |= 1 << micro;
+        return (decided & (1 << CELL_LOCAL[cell])) != 0;
+    }
+
+    /**
+     * @param move The move to check
+     * @return true if the current player may play the move
+     */
+    public boolean isLegal(IMove move) {
+        if (move.getX() < 0 || 9 <= move.getX() || move.getY() < 0 || 9 <= move.getY())
+            return false;
+        return isLegal(move.getX() * 9 + move.getY());
+    }
+
+    /**
+     * Plays a move for the current player. The move is not checked, see isLegal(int).
+     * @param cell Cell index, x*9 + y
+     */
+    public void play(int cell) {
+        int micro = CELL_MICRO[cell];
+        int player = currentPlayer;
+        int own = boards[player * 9 + micro] |= 1 << CELL_LOCAL[cell];
+        int previousActive = getActiveBoard();
+
+        moveNumber++;
+        if (moveNumber % 2 == 0)
+            roundNumber++;
+
+        if (BoardPatterns.isWin(own)) {
+            macroWon[player] |= 1 << micro;
+            if (BoardPatterns.isWin(macroWon[player])) {
+                gameOver = GameManager.GameOverState.Win;
+                winner = player;
+            }
+            else if (getDecidedBoards() == FULL)
+                gameOver = GameManager.GameOverState.Tie;
+        }
+        else if ((own | boards[(1 - player) * 9 + micro]) == FULL) {
+            macroTied |= 1 << micro;
+            if (getDecidedBoards() == FULL)
+                gameOver = GameManager.GameOverState.Tie;
+        }
+
+        int target = CELL_LOCAL[cell];
+        int decided = getDecidedBoards();
+        availableBoards = (decided & (1 << target)) == 0 ? 1 << target : ~decided & FULL;
+        currentPlayer = 1 - player;
+        zobristKey ^= Zobrist.cell(player, cell) ^ Zobrist.side()
+                ^ Zobrist.active(previousActive)
+                ^ Zobrist.active(getActiveBoard());
+    }
+
+    /**
+     * Plays a move for the current player. The move is not checked, see isLegal(IMove).
+     * @param move The move to play
+     */
+    public void play(IMove move) {
+        play(move.getX() * 9 + move.getY());
+    }
+
+    /**
+     * Takes back the last move played, so a search can play and take back moves on one
+     * simulator instead of copying it for every move.
+     * Everything else a move changes can be worked out again, except which microboards were
+     * available before it, so the caller has to keep that.
+     * @param cell The last move played, as a cell index
+     * @param previousAvailableBoards getAvailableBoards() from before the move was played
+     */
+    public void undo(int cell, int previousAvailableBoards) {
+        int micro = CELL_MICRO[cell];
+        int player = 1 - currentPlayer;
+        int activeAfter = getActiveBoard();
+
+        boards[player * 9 + micro] &= ~(1 << CELL_LOCAL[cell]);
+        // The microboard was undecided before the move, as it could be played in
+        macroWon[player] &= ~(1 << micro);
+        macroTied &= ~(1 << micro);
+        if (moveNumber % 2 == 0)
+            roundNumber--;
+        moveNumber--;
+        availableBoards = previousAvailableBoards;
+        gameOver = GameManager.GameOverState.Active;
+        winner = NO_WINNER;
+        currentPlayer = player;
+        zobristKey ^= Zobrist.cell(player, cell) ^ Zobrist.side()
+                ^ Zobrist.active(activeAfter)
+                ^ Zobrist.active(getActiveBoard());
+    }
+
+    /**
+     * @param random Source of randomness
+     * @return A uniformly chosen legal move, as a cell index, or -1 if there are none
+     */
+    public int randomMove(RandomGenerator random) {
+        int count = countLegalMoves();
+        if (count == 0)
+            return -1;
+        int pick = random.nextInt(count);
+        int available = getAvailableBoards();
+        while (true) {
+            int micro = Integer.numberOfTrailingZeros(available);
+            available &= available - 1;
+            int free = getFreeCells(micro);
+            int freeCount = Integer.bitCount(free);
+            if (pick < freeCount) {
+                for (int i = 0; i < pick; i++)
+                    free &= free - 1;
+                return MICRO_LOCAL_CELL[micro * 9 + Integer.numberOfTrailingZeros(free)];
+            }
+            pick -= freeCount;
+        }
+    }
+
+    /**
+     * Plays uniformly random moves until the game is over.
+     * @param random Source of randomness
+     * @return The winner, 0 or 1, or NO_WINNER on a tie
+     */
+    public int randomPlayout(RandomGenerator random) {
+        while (!isGameOver()) {
+            int cell = randomMove(random);
+            if (cell < 0)
+                break;
+            play(cell);
+        }
+        return winner;
+    }
+
+    private long computeZobristKey() {
+        long key = 0;
+        for (int cell = 0; cell < 81; cell++) {
+            int bit = 1 << CELL_LOCAL[cell];
+            if ((boards[CELL_MICRO[cell]] & bit) != 0)
+                key ^= Zobrist.cell(0, cell);
+            else if ((boards[9 + CELL_MICRO[cell]] & bit) != 0)
+                key ^= Zobrist.cell(1, cell);
+        }
+        if (currentPlayer == 1)
+            key ^= Zobrist.side();
+        return key ^ Zobrist.active(getActiveBoard());
+    }
+
+    /**
+     * @param cell Cell index, x*9 + y
+     * @return Microboard index of the cell, (x/3)*3 + y/3
+     */
+    public static int microOf(int cell) {
+        return CELL_MICRO[cell];
+    }
+
+    /**
+     * @param cell Cell index, x*9 + y
+     * @return Index of the cell within its microboard, (x%3)*3 + y%3
+     */
+    public static int localOf(int cell) {
+        return CELL_LOCAL[cell];
+    }
+
+    /**
+     * @param micro Microboard index
+     * @param local Index of the cell within the microboard
+     * @return Cell index, x*9 + y
+     */
+    public static int cellOf(int micro, int local) {
+        return MICRO_LOCAL_CELL[micro * 9 + local];
+    }
+}
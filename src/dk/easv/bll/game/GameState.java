@@ -1,5 +1,6 @@
 package dk.easv.bll.game;
 
+import dk.easv.bll.field.BitboardField;
 import dk.easv.bll.field.Field;
 import dk.easv.bll.field.IField;
 
@@ -8,6 +9,7 @@ public class GameState implements IGameState{
     int moveNumber;
     int roundNumber;
     int timePerMove = 1000; //1000ms default value, can be changes depending on game specifics.
+    transient long zobristKey = Zobrist.active(Zobrist.ANY_BOARD); // Empty board, player 0 to move
 
     public GameState(){
         field = new Field();
@@ -15,13 +17,36 @@ public class GameState implements IGameState{
         roundNumber=0;
     }
 
+    /**
+     * Creates a new game on the given field, e.g. a BitboardField for faster simulations.
+     * @param field The field backing this state, it is cleared before use
+     */
+    public GameState(IField field){
+        this.field = field;
+        field.clearBoard();
+        moveNumber=0;
+        roundNumber=0;
+    }
+
+    /**
+     * Copies the state. The copy uses the same kind of field as the original,
+     * so copies of a BitboardField backed state stay bitboards.
+     * @param state The state to copy
+     */
     public GameState(IGameState state) {
-        field = new Field();
-        field.setMacroboard(state.getField().getMacroboard());
-        field.setBoard(state.getField().getBoard());
+        if (state.getField() instanceof BitboardField) {
+            field = new BitboardField(state.getField());
+        }
+        else {
+            field = new Field();
+            field.setMacroboard(state.getField().getMacroboard());
+            field.setBoard(state.getField().getBoard());
+        }
 
         moveNumber = state.getMoveNumber();
         roundNumber = state.getRoundNumber();
+        timePerMove = state.getTimePerMove();
+        zobristKey = state.getZobristKey();
     }
 
     @Override
@@ -49,6 +74,16 @@ public class GameState implements IGameState{
         this.roundNumber = roundNumber;
     }
 
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    @Override
+    public void setZobristKey(long key) {
+        this.zobristKey = key;
+    }
+
     @Override
     public int getTimePerMove()
     {
@@ -18,4 +18,11 @@ public interface IGameState {
 
     int getTimePerMove();
     void setTimePerMove(int milliSeconds);
+
+    /**
+     * @return The Zobrist key of the position (board, side to move and active microboard),
+     * kept up to date by the GameManager. See Zobrist.
+     */
+    long getZobristKey();
+    void setZobristKey(long key);
 }
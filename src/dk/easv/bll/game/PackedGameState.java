@@ -0,0 +1,161 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+
+/**
+ * Packs a whole game state into WORDS longs, so states can be copied with a few word
+ * writes and kept densely in long[] arrays, queues or files.
+ *
+ * Layout:
+ * <pre>
+ * word 0-2  2 bits per cell (0 empty, 1 player 0, 2 player 1), cell x*9+y at bits 2*cell
+ *           across the three words (cells 0-31, 32-63 and 64-80)
+ * word 2    bits 34-51: 2 bits per microboard (0 undecided, 1 won by player 0, 2 by player 1, 3 tied)
+ *           bits 52-55: the active microboard (0-8), or Zobrist.ANY_BOARD for free choice
+ * word 3    bits 0-7: move number, bits 8-15: round number, bits 16-47: time per move in ms
+ * </pre>
+ * The Zobrist key is not stored, it is recomputed when a state is unpacked.
+ * The macroboard is restored the way GameManager leaves it: the active microboard, or every
+ * undecided microboard when the player has free choice, is marked available.
+ */
+public final class PackedGameState {
+
+    public static final int WORDS = 4;
+
+    private static final int MACRO_SHIFT = 34;
+    private static final int ACTIVE_SHIFT = 52;
+    private static final int ROUND_SHIFT = 8;
+    private static final int TIME_SHIFT = 16;
+
+    private PackedGameState() {
+    }
+
+    /**
+     * @param state The state to pack
+     * @return A new array of WORDS longs holding the state
+     */
+    public static long[] pack(IGameState state) {
+        long[] packed = new long[WORDS];
+        pack(state, packed, 0);
+        return packed;
+    }
+
+    /**
+     * Packs a state into an existing array.
+     * @param state The state to pack
+     * @param dst The array to write to
+     * @param offset Index of the first of the WORDS longs to write
+     */
+    public static void pack(IGameState state, long[] dst, int offset) {
+        IField field = state.getField();
+        long w0 = 0, w1 = 0, w2 = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                String id = field.getPlayerId(x, y);
+                long value = id.equals(BitboardField.PLAYER_0) ? 1 : id.equals(BitboardField.PLAYER_1) ? 2 : 0;
+                int cell = x * 9 + y;
+                if (cell < 32) w0 |= value << (2 * cell);
+                else if (cell < 64) w1 |= value << (2 * (cell - 32));
+                else w2 |= value << (2 * (cell - 64));
+            }
+
+        String[][] macroboard = field.getMacroboard();
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                String value = macroboard[i][k];
+                long status = value.equals(BitboardField.PLAYER_0) ? 1
+                        : value.equals(BitboardField.PLAYER_1) ? 2
+                        : value.equals(BitboardField.TIE) ? 3 : 0;
+                w2 |= status << (MACRO_SHIFT + 2 * (i * 3 + k));
+            }
+        w2 |= (long) Zobrist.activeIndex(macroboard) << ACTIVE_SHIFT;
+
+        dst[offset] = w0;
+        dst[offset + 1] = w1;
+        dst[offset + 2] = w2;
+        dst[offset + 3] = (state.getMoveNumber() & 0xFFL)
+                | ((state.getRoundNumber() & 0xFFL) << ROUND_SHIFT)
+                | ((state.getTimePerMove() & 0xFFFFFFFFL) << TIME_SHIFT);
+    }
+
+    /**
+     * @param src The array holding the packed state
+     * @param offset Index of its first word
+     * @return A new GameState holding the unpacked state
+     */
+    public static GameState unpack(long[] src, int offset) {
+        GameState state = new GameState();
+        unpack(src, offset, state);
+        return state;
+    }
+
+    /**
+     * Overwrites a state with a packed one.
+     * @param src The array holding the packed state
+     * @param offset Index of its first word
+     * @param state The state to overwrite
+     */
+    public static void unpack(long[] src, int offset, IGameState state) {
+        String[][] board = new String[9][9];
+        long key = 0;
+        for (int cell = 0; cell < 81; cell++) {
+            int value = getCell(src, offset, cell);
+            String id = IField.EMPTY_FIELD;
+            if (value == 1) {
+                id = BitboardField.PLAYER_0;
+                key ^= Zobrist.cell(0, cell);
+            }
+            else if (value == 2) {
+                id = BitboardField.PLAYER_1;
+                key ^= Zobrist.cell(1, cell);
+            }
+            board[cell / 9][cell % 9] = id;
+        }
+
+        long w2 = src[offset + 2];
+        int active = (int) (w2 >>> ACTIVE_SHIFT) & 0xF;
+        String[][] macroboard = new String[3][3];
+        for (int micro = 0; micro < 9; micro++) {
+            int status = (int) (w2 >>> (MACRO_SHIFT + 2 * micro)) & 0x3;
+            String value;
+            if (status == 1) value = BitboardField.PLAYER_0;
+            else if (status == 2) value = BitboardField.PLAYER_1;
+            else if (status == 3) value = BitboardField.TIE;
+            else if (active == Zobrist.ANY_BOARD || active == micro) value = IField.AVAILABLE_FIELD;
+            else value = IField.EMPTY_FIELD;
+            macroboard[micro / 3][micro % 3] = value;
+        }
+
+        long w3 = src[offset + 3];
+        int moveNumber = (int) (w3 & 0xFF);
+        if (moveNumber % 2 == 1)
+            key ^= Zobrist.side();
+
+        state.getField().setBoard(board);
+        state.getField().setMacroboard(macroboard);
+        state.setMoveNumber(moveNumber);
+        state.setRoundNumber((int) (w3 >>> ROUND_SHIFT) & 0xFF);
+        state.setTimePerMove((int) (w3 >>> TIME_SHIFT));
+        state.setZobristKey(key ^ Zobrist.active(active));
+    }
+
+    /**
+     * Copies a packed state between arrays.
+     */
+    public static void copy(long[] src, int srcOffset, long[] dst, int dstOffset) {
+        System.arraycopy(src, srcOffset, dst, dstOffset, WORDS);
+    }
+
+    /**
+     * @param src The array holding the packed state
+     * @param offset Index of its first word
+     * @param cell Cell index, x*9 + y
+     * @return 0 if the cell is empty, 1 if player 0 holds it, 2 if player 1 holds it
+     */
+    public static int getCell(long[] src, int offset, int cell) {
+        if (cell < 32) return (int) (src[offset] >>> (2 * cell)) & 0x3;
+        if (cell < 64) return (int) (src[offset + 1] >>> (2 * (cell - 32))) & 0x3;
+        return (int) (src[offset + 2] >>> (2 * (cell - 64))) & 0x3;
+    }
+}
@@ -0,0 +1,104 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of positions: a 64 bit key made by XOR'ing one random number for every
+ * occupied cell, one for the side to move and one for the microboard the next move is limited to.
+ * Because XOR undoes itself, the key can be updated move by move instead of being recomputed.
+ * ZobristCheck, in the verify source root, checks the keys updated that way against hash().
+ *
+ * The numbers come from a fixed seed, so keys are the same in every run and can be stored.
+ */
+public final class Zobrist {
+
+    /**
+     * Active index used when the player to move may choose any undecided microboard.
+     */
+    public static final int ANY_BOARD = 9;
+
+    private static final long[] CELLS = new long[2 * 81];
+    private static final long[] ACTIVE = new long[10];
+    private static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED0F0777L);
+        for (int i = 0; i < CELLS.length; i++)
+            CELLS[i] = random.nextLong();
+        for (int i = 0; i < ACTIVE.length; i++)
+            ACTIVE[i] = random.nextLong();
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param player 0 or 1
+     * @param cell Cell index, x*9 + y
+     * @return The key of the player's mark on the cell
+     */
+    public static long cell(int player, int cell) {
+        return CELLS[player * 81 + cell];
+    }
+
+    /**
+     * @return The key XOR'ed in while player 1 is to move
+     */
+    public static long side() {
+        return SIDE;
+    }
+
+    /**
+     * @param activeIndex Microboard index (0-8) or ANY_BOARD
+     * @return The key of the active microboard constraint
+     */
+    public static long active(int activeIndex) {
+        return ACTIVE[activeIndex];
+    }
+
+    /**
+     * @param available 9 bit mask of the microboards that may be played in
+     * @param undecided 9 bit mask of the microboards that are neither won nor tied
+     * @return The microboard the next move is limited to, or ANY_BOARD
+     */
+    public static int activeIndex(int available, int undecided) {
+        if (available != undecided && Integer.bitCount(available) == 1)
+            return Integer.numberOfTrailingZeros(available);
+        return ANY_BOARD;
+    }
+
+    /**
+     * @param macroboard The 3x3 macroboard
+     * @return The microboard the next move is limited to, or ANY_BOARD
+     */
+    public static int activeIndex(String[][] macroboard) {
+        int available = BoardPatterns.mask(macroboard, IField.AVAILABLE_FIELD);
+        int undecided = available | BoardPatterns.mask(macroboard, IField.EMPTY_FIELD);
+        return activeIndex(available, undecided);
+    }
+
+    /**
+     * Computes the key of a state from scratch.
+     * @param state The state to hash
+     * @return The Zobrist key
+     */
+    public static long hash(IGameState state) {
+        IField field = state.getField();
+        long key = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                String id = field.getPlayerId(x, y);
+                if (id.equals(BitboardField.PLAYER_0))
+                    key ^= cell(0, x * 9 + y);
+                else if (id.equals(BitboardField.PLAYER_1))
+                    key ^= cell(1, x * 9 + y);
+            }
+        if (state.getMoveNumber() % 2 == 1)
+            key ^= SIDE;
+        return key ^ active(activeIndex(field.getMacroboard()));
+    }
+}
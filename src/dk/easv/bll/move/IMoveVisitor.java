@@ -0,0 +1,14 @@
+package dk.easv.bll.move;
+
+/**
+ * Callback used to walk through moves without creating IMove objects.
+ */
+public interface IMoveVisitor {
+
+    /**
+     * Called once for every visited move.
+     * @param x Column of the move
+     * @param y Row of the move
+     */
+    void visit(int x, int y);
+}
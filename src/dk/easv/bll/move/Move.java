@@ -1,22 +1,44 @@
 package dk.easv.bll.move;
 
-import java.util.Objects;
-
+/**
+ * An immutable move. The 81 moves on the board are created once and shared,
+ * get them with Move.of(x, y) instead of creating new instances.
+ */
 public class Move implements IMove{
-    int x=0;
-    int y=0;
+    private static final Move[] MOVES = new Move[81];
+
+    static {
+        for (int i = 0; i < MOVES.length; i++)
+            MOVES[i] = new Move(i / 9, i % 9);
+    }
+
+    final int x;
+    final int y;
 
     public Move(int x, int y) {
         this.x=x;
         this.y=y;
     }
 
-    public void setY(int y){
-        this.y=y;
+    /**
+     * @param x Column (0-8)
+     * @param y Row (0-8)
+     * @return The shared move instance for the cell
+     */
+    public static Move of(int x, int y) {
+        if (x < 0 || 9 <= x || y < 0 || 9 <= y)
+            throw new IllegalArgumentException("Move outside the board: (" + x + "," + y + ")");
+        return MOVES[x * 9 + y];
     }
 
-    public void setX(int x){
-        this.x=x;
+    /**
+     * @param index Cell index, x*9 + y, as used by IField.getAvailableMoves(int[])
+     * @return The shared move instance for the cell
+     */
+    public static Move of(int index) {
+        if (index < 0 || MOVES.length <= index)
+            throw new IllegalArgumentException("Move outside the board: " + index);
+        return MOVES[index];
     }
 
     @Override
@@ -29,6 +51,13 @@ public class Move implements IMove{
         return y;
     }
 
+    /**
+     * @return The cell index of the move, x*9 + y (0-80 for moves on the board)
+     */
+    public int getIndex() {
+        return x * 9 + y;
+    }
+
     @Override
     public String toString() {
         return "("+x+","+y+")";
@@ -44,6 +73,7 @@ public class Move implements IMove{
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        // The cell index, unique for every move on the board
+        return x * 9 + y;
     }
 }
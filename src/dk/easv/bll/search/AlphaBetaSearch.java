@@ -0,0 +1,312 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.BoardPatterns;
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.Zobrist;
+
+import java.util.Arrays;
+
+/**
+ * Iterative deepening alpha-beta (negamax) search.
+ *
+ * The search plays and takes back moves on one GameSimulator (play() and undo()), and all
+ * move lists, killer moves and principal variations live in arrays allocated up front, so
+ * searching does not allocate. Each iteration searches one ply deeper than the last until
+ * the deadline; an iteration that runs out of time is thrown away.
+ *
+ * Moves are tried in this order: the principal variation of the last iteration, the best
+ * move from the transposition table, moves that win a microboard, the two killer moves
+ * of the ply (quiet moves that caused a cutoff in a sibling), and the rest by history score
+ * (how often the move caused a cutoff anywhere, weighted by depth).
+ */
+public class AlphaBetaSearch {
+
+    public static final int WIN_SCORE = 100_000;
+    public static final int MAX_DEPTH = 81;
+
+    private static final int INFINITY = WIN_SCORE + 1;
+    // Scores this close to WIN_SCORE are forced wins, found within MAX_DEPTH plies
+    private static final int WIN_THRESHOLD = WIN_SCORE - MAX_DEPTH - 1;
+    // The clock is read every this many nodes, must be a power of 2
+    private static final int CHECK_INTERVAL = 1024;
+
+    // Move ordering
+    private static final int PV_BONUS = 1 << 30;
+    private static final int TABLE_BONUS = 1 << 29;
+    private static final int WIN_BONUS = 1 << 28;
+    private static final int KILLER_BONUS = 1 << 27;
+    private static final int FREE_CHOICE_PENALTY = 1 << 20;
+
+    // Evaluation, the macroboard's center counts most and its corners more than its edges
+    private static final int[] BOARD_WEIGHT = {3, 2, 3, 2, 4, 2, 3, 2, 3};
+    private static final int WON_BOARD = 100;
+    private static final int MACRO_THREAT = 150;
+    private static final int MICRO_THREAT = 8;
+    private static final int MICRO_CENTER = 3;
+    private static final int FREE_CHOICE = 25;
+
+    private final TranspositionTable table;
+    private final GameSimulator position = new GameSimulator();
+    private final int[][] moves = new int[MAX_DEPTH + 1][81];
+    private final int[][] orderScores = new int[MAX_DEPTH + 1][81];
+    private final int[] killers = new int[2 * (MAX_DEPTH + 1)];
+    private final int[] history = new int[2 * 81];
+    private final int[][] pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+    private final int[] pvLength = new int[MAX_DEPTH + 1];
+    private final int[] lastPv = new int[MAX_DEPTH + 1];
+    private int lastPvLength;
+
+    private long deadlineNanos;
+    private boolean aborted;
+    private long nodes;
+    private long elapsedNanos;
+    private int completedDepth;
+    private int bestMove;
+    private int bestScore;
+
+    /**
+     * @param log2TableEntries Size of the transposition table, see TranspositionTable
+     */
+    public AlphaBetaSearch(int log2TableEntries) {
+        table = new TranspositionTable(log2TableEntries);
+    }
+
+    /**
+     * Searches deeper and deeper until the deadline, the depth limit, or a forced result is found.
+     * The first iteration (depth 1) is always completed.
+     * @param root The position to search
+     * @param deadlineNanos Value of System.nanoTime() at which to stop
+     * @param maxDepth The deepest iteration to run
+     * @return The best move as a cell index, or -1 if the game is over
+     */
+    public int search(GameSimulator root, long deadlineNanos, int maxDepth) {
+        long start = System.nanoTime();
+        position.copyFrom(root);
+        table.newSearch();
+        Arrays.fill(killers, -1);
+        for (int i = 0; i < history.length; i++)
+            history[i] >>= 2;
+        nodes = 0;
+        lastPvLength = 0;
+        completedDepth = 0;
+        bestScore = 0;
+        bestMove = -1;
+        if (position.isGameOver())
+            return -1;
+
+        maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // Depth 1 always finishes, so there is a move to play
+            this.deadlineNanos = depth == 1 ? Long.MAX_VALUE : deadlineNanos;
+            aborted = false;
+            int score = negamax(depth, -INFINITY, INFINITY, 0, true);
+            if (aborted)
+                break;
+
+            completedDepth = depth;
+            bestScore = score;
+            lastPvLength = pvLength[0];
+            System.arraycopy(pv[0], 0, lastPv, 0, lastPvLength);
+            if (lastPvLength > 0)
+                bestMove = lastPv[0];
+            if (Math.abs(score) >= WIN_THRESHOLD || System.nanoTime() >= deadlineNanos)
+                break;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, boolean followPv) {
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadlineNanos)
+            aborted = true;
+        if (aborted)
+            return 0;
+        pvLength[ply] = 0;
+
+        if (position.isGameOver()) {
+            int winner = position.getWinner();
+            if (winner == GameSimulator.NO_WINNER)
+                return 0;
+            // The last move won, so the player to move has lost
+            return -(WIN_SCORE - ply);
+        }
+        if (depth == 0 || ply == MAX_DEPTH)
+            return evaluate();
+
+        long key = position.getZobristKey();
+        int entry = table.probe(key);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if (entry >= 0) {
+            tableMove = table.getMove(entry);
+            if (ply > 0 && table.getDepth(entry) >= depth) {
+                int score = fromTable(table.getScore(entry), ply);
+                int flag = table.getFlag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (flag == TranspositionTable.UPPER_BOUND && score <= alpha))
+                    return score;
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = position.getLegalMoves(list);
+        int pvMove = followPv && ply < lastPvLength ? lastPv[ply] : -1;
+        scoreMoves(list, orderScores[ply], count, ply, pvMove, tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestCell = TranspositionTable.NO_MOVE;
+        int player = position.getCurrentPlayer();
+        for (int i = 0; i < count; i++) {
+            int cell = nextMove(list, orderScores[ply], i, count);
+            int previousAvailable = position.getAvailableBoards();
+            position.play(cell);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1, cell == pvMove);
+            position.undo(cell, previousAvailable);
+            if (aborted)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestCell = cell;
+            }
+            if (score > alpha) {
+                alpha = score;
+                pv[ply][0] = cell;
+                System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+            }
+            if (alpha >= beta) {
+                if (!position.winsMicroboard(player, cell) && killers[2 * ply] != cell) {
+                    killers[2 * ply + 1] = killers[2 * ply];
+                    killers[2 * ply] = cell;
+                }
+                history[player * 81 + cell] += depth * depth;
+                break;
+            }
+        }
+
+        int flag = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        table.store(key, depth, toTable(best, ply), flag, bestCell);
+        return best;
+    }
+
+    private void scoreMoves(int[] list, int[] scores, int count, int ply, int pvMove, int tableMove) {
+        int player = position.getCurrentPlayer();
+        for (int i = 0; i < count; i++) {
+            int cell = list[i];
+            int score = history[player * 81 + cell];
+            if (cell == pvMove)
+                score += PV_BONUS;
+            else if (cell == tableMove)
+                score += TABLE_BONUS;
+            if (position.winsMicroboard(player, cell))
+                score += WIN_BONUS;
+            else if (cell == killers[2 * ply] || cell == killers[2 * ply + 1])
+                score += KILLER_BONUS;
+            if (position.givesFreeChoice(cell))
+                score -= FREE_CHOICE_PENALTY;
+            scores[i] = score;
+        }
+    }
+
+    // Selection sort, one step at a time: moves after a cutoff are never sorted
+    private static int nextMove(int[] list, int[] scores, int from, int count) {
+        int best = from;
+        for (int i = from + 1; i < count; i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int cell = list[best];
+        list[best] = list[from];
+        list[from] = cell;
+        int score = scores[best];
+        scores[best] = scores[from];
+        scores[from] = score;
+        return cell;
+    }
+
+    /**
+     * Static evaluation of the position for the player to move.
+     */
+    private int evaluate() {
+        int score = evaluate(0) - evaluate(1);
+        if (position.getActiveBoard() == Zobrist.ANY_BOARD)
+            score += position.getCurrentPlayer() == 0 ? FREE_CHOICE : -FREE_CHOICE;
+        return position.getCurrentPlayer() == 0 ? score : -score;
+    }
+
+    private int evaluate(int player) {
+        int won = position.getMacroWon(player);
+        int lost = position.getMacroWon(1 - player) | position.getMacroTied();
+        int score = Integer.bitCount(BoardPatterns.winningCells(won, lost)) * MACRO_THREAT;
+        int decided = position.getDecidedBoards();
+        for (int micro = 0; micro < 9; micro++) {
+            int weight = BOARD_WEIGHT[micro];
+            if ((won & (1 << micro)) != 0) {
+                score += WON_BOARD * weight;
+            }
+            else if ((decided & (1 << micro)) == 0) {
+                int own = position.getMicroboard(player, micro);
+                int opponent = position.getMicroboard(1 - player, micro);
+                score += Integer.bitCount(BoardPatterns.winningCells(own, opponent)) * MICRO_THREAT * weight;
+                if ((own & (1 << 4)) != 0)
+                    score += MICRO_CENTER * weight;
+            }
+        }
+        return score;
+    }
+
+    // Forced win scores are stored relative to the position, not to the root
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) return score + ply;
+        if (score <= -WIN_THRESHOLD) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) return score - ply;
+        if (score <= -WIN_THRESHOLD) return score + ply;
+        return score;
+    }
+
+    /**
+     * @return The depth of the last completed iteration
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * @return The score of the best move for the player to move, from the last completed iteration.
+     * Scores above WIN_SCORE - MAX_DEPTH are forced wins.
+     */
+    public int getScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return The number of positions visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return Positions visited per second in the last search
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @param buffer Receives the expected line of play, as cell indexes, starting with the best move
+     * @return The number of moves written
+     */
+    public int getPrincipalVariation(int[] buffer) {
+        int length = Math.min(lastPvLength, buffer.length);
+        System.arraycopy(lastPv, 0, buffer, 0, length);
+        return length;
+    }
+}
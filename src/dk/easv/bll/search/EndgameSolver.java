@@ -0,0 +1,210 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+
+/**
+ * Solves endgames exactly: finds out whether the player to move wins, draws or loses with
+ * perfect play, and a move that achieves it.
+ *
+ * It is an alpha-beta search to the end of the game where a position is only worth
+ * win (1), draw (0) or loss (-1), so it cuts off as soon as a win is found. Solved
+ * positions are kept in a transposition table, which matters a lot here because the
+ * same position is reached through many move orders.
+ *
+ * It only makes sense when little of the game is left, see isApplicable(). Any bot can call
+ * it at the start of doMove() and play the move if the result is a win or a draw:
+ * <pre>
+ * if (solver.isApplicable(position)) {
+ *     EndgameSolver.Result result = solver.solve(position, deadline);
+ *     if (result == EndgameSolver.Result.WIN || result == EndgameSolver.Result.DRAW)
+ *         return Move.of(solver.getBestMove());
+ * }
+ * </pre>
+ */
+public class EndgameSolver {
+
+    public enum Result {
+        WIN,
+        DRAW,
+        LOSS,
+        // The time ran out before the position was solved
+        UNKNOWN
+    }
+
+    public static final int DEFAULT_MAX_EMPTY_CELLS = 24;
+    public static final int DEFAULT_MAX_OPEN_BOARDS = 2;
+
+    private static final int MAX_PLY = 81;
+    // The clock is read every this many nodes, must be a power of 2
+    private static final int CHECK_INTERVAL = 1024;
+    // Solved positions are stored with this depth, so they always win over other entries
+    private static final int SOLVED_DEPTH = 255;
+
+    private final int maxEmptyCells;
+    private final int maxOpenBoards;
+    private final int tableSizeLog2;
+    private TranspositionTable table; // Created on first use
+    private final GameSimulator position = new GameSimulator();
+    private final int[][] moves = new int[MAX_PLY + 1][81];
+    private long deadlineNanos;
+    private boolean aborted;
+    private long nodes;
+    private int bestMove = -1;
+
+    public EndgameSolver() {
+        this(DEFAULT_MAX_EMPTY_CELLS, DEFAULT_MAX_OPEN_BOARDS, 18);
+    }
+
+    /**
+     * @param maxEmptyCells Solve when at most this many cells can still be played
+     * @param maxOpenBoards Or when at most this many microboards are undecided
+     * @param tableSizeLog2 Size of the transposition table, see TranspositionTable
+     */
+    public EndgameSolver(int maxEmptyCells, int maxOpenBoards, int tableSizeLog2) {
+        this.maxEmptyCells = maxEmptyCells;
+        this.maxOpenBoards = maxOpenBoards;
+        this.tableSizeLog2 = tableSizeLog2;
+    }
+
+    /**
+     * @param position The position
+     * @return true if the position is small enough to be worth solving
+     */
+    public boolean isApplicable(GameSimulator position) {
+        if (position.isGameOver())
+            return false;
+        int open = ~position.getDecidedBoards() & 0x1FF;
+        if (Integer.bitCount(open) <= maxOpenBoards)
+            return true;
+        int empty = 0;
+        for (int boards = open; boards != 0; boards &= boards - 1)
+            empty += Integer.bitCount(position.getFreeCells(Integer.numberOfTrailingZeros(boards)));
+        return empty <= maxEmptyCells;
+    }
+
+    /**
+     * @param state The position
+     * @return true if the position is small enough to be worth solving
+     */
+    public boolean isApplicable(IGameState state) {
+        return isApplicable(new GameSimulator(state));
+    }
+
+    /**
+     * Solves the position for the player to move. getBestMove() then returns a move reaching the result.
+     * @param root The position to solve
+     * @param deadlineNanos Value of System.nanoTime() at which to give up
+     * @return The result with perfect play, or UNKNOWN if the time ran out
+     */
+    public Result solve(GameSimulator root, long deadlineNanos) {
+        if (table == null)
+            table = new TranspositionTable(tableSizeLog2);
+        table.newSearch();
+        position.copyFrom(root);
+        this.deadlineNanos = deadlineNanos;
+        aborted = false;
+        nodes = 0;
+        bestMove = -1;
+        if (position.isGameOver())
+            return Result.UNKNOWN;
+
+        int score = negamax(-1, 1, 0);
+        if (aborted) {
+            bestMove = -1;
+            return Result.UNKNOWN;
+        }
+        return score > 0 ? Result.WIN : score < 0 ? Result.LOSS : Result.DRAW;
+    }
+
+    private int negamax(int alpha, int beta, int ply) {
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadlineNanos)
+            aborted = true;
+        if (aborted)
+            return 0;
+        if (position.isGameOver())
+            // The last move ended the game, so the player to move did not win it
+            return position.getWinner() == GameSimulator.NO_WINNER ? 0 : -1;
+
+        long key = position.getZobristKey();
+        int entry = table.probe(key);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if (entry >= 0) {
+            tableMove = table.getMove(entry);
+            int score = table.getScore(entry);
+            int flag = table.getFlag(entry);
+            if (ply > 0 && (flag == TranspositionTable.EXACT
+                    || (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (flag == TranspositionTable.UPPER_BOUND && score <= alpha)))
+                return score;
+        }
+
+        int[] list = moves[ply];
+        int count = orderMoves(list, tableMove);
+        int originalAlpha = alpha;
+        int best = -2;
+        int bestCell = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int cell = list[i];
+            int previousAvailable = position.getAvailableBoards();
+            position.play(cell);
+            int score = -negamax(-beta, -alpha, ply + 1);
+            position.undo(cell, previousAvailable);
+            if (aborted)
+                return 0;
+            if (score > best) {
+                best = score;
+                bestCell = cell;
+                if (ply == 0)
+                    bestMove = cell;
+            }
+            if (score > alpha)
+                alpha = score;
+            if (alpha >= beta)
+                break;
+        }
+
+        int flag = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        table.store(key, SOLVED_DEPTH, best, flag, bestCell);
+        return best;
+    }
+
+    // Table move first, then moves winning a microboard, then moves not giving free choice, then the rest
+    private int orderMoves(int[] list, int tableMove) {
+        int count = position.getLegalMoves(list);
+        int player = position.getCurrentPlayer();
+        int front = 0;
+        for (int i = 0; i < count; i++)
+            if (list[i] == tableMove)
+                swap(list, i, front++);
+        for (int i = front; i < count; i++)
+            if (position.winsMicroboard(player, list[i]))
+                swap(list, i, front++);
+        for (int i = front; i < count; i++)
+            if (!position.givesFreeChoice(list[i]))
+                swap(list, i, front++);
+        return count;
+    }
+
+    private static void swap(int[] list, int a, int b) {
+        int move = list[a];
+        list[a] = list[b];
+        list[b] = move;
+    }
+
+    /**
+     * @return The move reaching the result of the last solve(), as a cell index, or -1 if it was not solved
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return The number of positions visited by the last solve()
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,111 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.BoardPatterns;
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Playouts with a little tactics, which make each playout a much better guess of the result
+ * than a random one at almost the same speed. In every position the move is chosen at random
+ * from the first of these groups that is not empty:
+ * <ol>
+ *     <li>moves that win a microboard</li>
+ *     <li>moves that stop the opponent from winning a microboard on their next move there</li>
+ *     <li>moves that don't send the opponent to a won or tied microboard (free choice)</li>
+ *     <li>any legal move</li>
+ * </ol>
+ * The groups come straight from the microboard masks and the BoardPatterns table of cells that
+ * complete a line, no moves are tried.
+ */
+public final class HeavyPlayoutPolicy implements IPlayoutPolicy {
+
+    public static final HeavyPlayoutPolicy INSTANCE = new HeavyPlayoutPolicy();
+
+    private static final int WIN = 0;
+    private static final int BLOCK = 1;
+    private static final int SAFE = 2;
+    private static final int ANY = 3;
+
+    private HeavyPlayoutPolicy() {
+    }
+
+    @Override
+    public int selectMove(GameSimulator simulator, RandomGenerator random) {
+        int available = simulator.getAvailableBoards();
+        if (available == 0)
+            return -1;
+        int player = simulator.getCurrentPlayer();
+
+        if (Integer.bitCount(available) == 1) {
+            // The usual case: one microboard, so each group is a single mask
+            int micro = Integer.numberOfTrailingZeros(available);
+            for (int group = WIN; group <= ANY; group++) {
+                int cells = candidates(simulator, micro, player, group);
+                if (cells != 0)
+                    return GameSimulator.cellOf(micro, randomBit(cells, random));
+            }
+            return -1;
+        }
+
+        for (int group = WIN; group <= ANY; group++) {
+            int cell = pick(simulator, available, player, group, random);
+            if (cell >= 0)
+                return cell;
+        }
+        return -1;
+    }
+
+    // Picks a random cell of the group over several microboards, or -1 if the group is empty
+    private static int pick(GameSimulator simulator, int available, int player, int group, RandomGenerator random) {
+        int total = 0;
+        for (int boards = available; boards != 0; boards &= boards - 1)
+            total += Integer.bitCount(candidates(simulator, Integer.numberOfTrailingZeros(boards), player, group));
+        if (total == 0)
+            return -1;
+        int pick = random.nextInt(total);
+        for (int boards = available; boards != 0; boards &= boards - 1) {
+            int micro = Integer.numberOfTrailingZeros(boards);
+            int cells = candidates(simulator, micro, player, group);
+            int count = Integer.bitCount(cells);
+            if (pick < count)
+                return GameSimulator.cellOf(micro, nthBit(cells, pick));
+            pick -= count;
+        }
+        return -1;
+    }
+
+    // The cells of the microboard in the group, as a 9 bit mask
+    private static int candidates(GameSimulator simulator, int micro, int player, int group) {
+        int own = simulator.getMicroboard(player, micro);
+        int opponent = simulator.getMicroboard(1 - player, micro);
+        int free = ~(own | opponent) & BoardPatterns.FULL_MASK;
+        switch (group) {
+            case WIN:
+                return BoardPatterns.winningCells(own, opponent);
+            case BLOCK:
+                return BoardPatterns.winningCells(opponent, own);
+            case SAFE:
+                // The cell index within a microboard is the microboard the opponent is sent to
+                int safe = free & ~simulator.getDecidedBoards();
+                int self = 1 << micro;
+                // Playing the cell that sends the opponent back here is only safe if it doesn't fill the board
+                if ((safe & self) != 0 && ((own | opponent | self) == BoardPatterns.FULL_MASK))
+                    safe &= ~self;
+                return safe;
+            default:
+                return free;
+        }
+    }
+
+    private static int randomBit(int mask, RandomGenerator random) {
+        int count = Integer.bitCount(mask);
+        return nthBit(mask, count == 1 ? 0 : random.nextInt(count));
+    }
+
+    private static int nthBit(int mask, int n) {
+        for (int i = 0; i < n; i++)
+            mask &= mask - 1;
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
@@ -0,0 +1,35 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Chooses the moves of a playout, the game played to the end from a leaf of the search tree.
+ * A policy must not keep state between calls, so one policy can be shared by several threads.
+ */
+public interface IPlayoutPolicy {
+
+    /**
+     * @param simulator The position, it is not changed
+     * @param random Source of randomness
+     * @return The move to play, as a cell index, or -1 if there is none
+     */
+    int selectMove(GameSimulator simulator, RandomGenerator random);
+
+    /**
+     * Plays moves chosen by the policy until the game is over.
+     * @param simulator The position to play out, it is changed
+     * @param random Source of randomness
+     * @return The winner, 0 or 1, or GameSimulator.NO_WINNER on a tie
+     */
+    default int playout(GameSimulator simulator, RandomGenerator random) {
+        while (!simulator.isGameOver()) {
+            int cell = selectMove(simulator, random);
+            if (cell < 0)
+                break;
+            simulator.play(cell);
+        }
+        return simulator.getWinner();
+    }
+}
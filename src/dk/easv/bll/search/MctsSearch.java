@@ -0,0 +1,336 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Monte Carlo Tree Search with UCT selection.
+ *
+ * Every iteration walks down the tree picking the child with the best UCT value, expands the
+ * leaf it ends in if it has been visited before, plays a game to the end from there (a playout,
+ * see IPlayoutPolicy) and adds the result to every node on the way back up. The move played
+ * is the most visited child of the root.
+ *
+ * The nodes live in a NodeArena of fixed capacity, so searching does not allocate. A leaf is
+ * expanded by adding all its children at once, in random order, and unvisited children are
+ * tried first. When the arena is full the tree stops growing and playouts start from its leaves.
+ *
+ * The tree is kept between searches. When setRoot() gets a position that is in the tree, a
+ * child or grandchild of the old root (our move and the opponent's reply), the arena is
+ * compacted to that subtree and everything learned about it in earlier turns is kept.
+ *
+ * It is also an MCTS-solver: a node whose game is over is proven a win or a draw for the
+ * player who moved into it, and proofs are backed up minimax style. A node is a proven loss
+ * for its player when one of its children is a proven win for the opponent, a proven win when
+ * all its children are proven losses, and a proven draw when all its children are proven and
+ * the best is a draw. Proven children are never selected, so a decided line costs no more
+ * playouts, and the search stops as soon as the root is proven.
+ */
+public class MctsSearch {
+
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+    /**
+     * Default arena capacity, about 28 MB.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // How many plies below the old root setRoot() looks for the new position
+    private static final int REUSE_DEPTH = 2;
+    private static final int ROOT = 0;
+
+    private final RandomGenerator random;
+    private final NodeArena tree;
+    private final GameSimulator rootState = new GameSimulator();
+    private final GameSimulator simulator = new GameSimulator();
+    private final GameSimulator probe = new GameSimulator();
+    private final int[] moveBuffer = new int[81];
+    private double exploration = DEFAULT_EXPLORATION;
+    private IPlayoutPolicy playoutPolicy = RandomPlayoutPolicy.INSTANCE;
+    private long playouts;
+
+    /**
+     * @param random Source of randomness for expansion and playouts
+     */
+    public MctsSearch(RandomGenerator random) {
+        this(random, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param random Source of randomness for expansion and playouts
+     * @param capacity The most nodes the tree may have
+     */
+    public MctsSearch(RandomGenerator random, int capacity) {
+        this.random = random;
+        this.tree = new NodeArena(capacity);
+    }
+
+    /**
+     * @param exploration The UCT exploration constant, higher values try more moves
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param playoutPolicy How the moves of playouts are chosen, random by default
+     */
+    public void setPlayoutPolicy(IPlayoutPolicy playoutPolicy) {
+        this.playoutPolicy = playoutPolicy;
+    }
+
+    /**
+     * Sets the position to search. Keeps the matching subtree if the position is our last
+     * root or a position reachable from it in up to two moves, otherwise starts a new tree.
+     * @param state The position to search from
+     */
+    public void setRoot(GameSimulator state) {
+        int reused = tree.size() == 0 ? NodeArena.NONE : find(ROOT, rootState, state, REUSE_DEPTH);
+        if (reused == NodeArena.NONE)
+            tree.newRoot(1 - state.getCurrentPlayer());
+        else if (reused != ROOT)
+            tree.compact(reused);
+        rootState.copyFrom(state);
+    }
+
+    // Depth first search for the node whose position is target, replaying the moves from nodeState
+    private int find(int node, GameSimulator nodeState, GameSimulator target, int depth) {
+        if (nodeState.getZobristKey() == target.getZobristKey() && nodeState.getMoveNumber() == target.getMoveNumber())
+            return node;
+        int first = tree.getFirstChild(node);
+        if (depth == 0 || first == NodeArena.NONE)
+            return NodeArena.NONE;
+        GameSimulator childState = new GameSimulator();
+        for (int child = first; child < first + tree.getChildCount(node); child++) {
+            childState.copyFrom(nodeState);
+            childState.play(tree.getMove(child));
+            int found = find(child, childState, target, depth - 1);
+            if (found != NodeArena.NONE)
+                return found;
+        }
+        return NodeArena.NONE;
+    }
+
+    /**
+     * Searches until the deadline or until the root is proven. At least one iteration is always run.
+     * @param deadlineNanos Value of System.nanoTime() at which to stop
+     */
+    public void search(long deadlineNanos) {
+        do {
+            iterate();
+        } while (!isRootProven() && System.nanoTime() < deadlineNanos);
+    }
+
+    /**
+     * Runs a fixed number of iterations, fewer if the root is proven.
+     * @param iterations The number of playouts to run
+     */
+    public void searchIterations(int iterations) {
+        for (int i = 0; i < iterations && !isRootProven(); i++)
+            iterate();
+    }
+
+    /**
+     * Runs one selection, expansion, playout and backpropagation. Does nothing if the root is proven.
+     */
+    public void iterate() {
+        if (isRootProven())
+            return;
+        simulator.copyFrom(rootState);
+        int node = ROOT;
+
+        // Selection, which never enters a proven node
+        while (tree.getFirstChild(node) != NodeArena.NONE) {
+            node = select(node);
+            simulator.play(tree.getMove(node));
+        }
+
+        // Expansion, of the root straight away and of other leaves on their second visit
+        if (!simulator.isGameOver() && (node == ROOT || tree.getVisits(node) > 0)) {
+            int count = simulator.getLegalMoves(moveBuffer);
+            shuffle(moveBuffer, count);
+            int first = tree.addChildren(node, moveBuffer, count, simulator.getCurrentPlayer());
+            if (first != NodeArena.NONE) {
+                node = first;
+                simulator.play(tree.getMove(node));
+            }
+        }
+
+        // A finished game is the one place a value is known for sure
+        if (simulator.isGameOver())
+            prove(node, simulator.getWinner() == GameSimulator.NO_WINNER
+                    ? NodeArena.PROVEN_DRAW : NodeArena.PROVEN_WIN);
+
+        // Playout
+        int winner = playoutPolicy.playout(simulator, random);
+        playouts++;
+
+        // Backpropagation
+        for (; node != NodeArena.NONE; node = tree.getParent(node)) {
+            if (winner == tree.getPlayer(node))
+                tree.addResult(node, 1);
+            else if (winner == GameSimulator.NO_WINNER)
+                tree.addResult(node, 0.5);
+            else
+                tree.addResult(node, 0);
+        }
+    }
+
+    // Marks the node proven and backs the proof up as far as it decides its ancestors
+    private void prove(int node, int value) {
+        tree.setProven(node, value);
+        for (int parent = tree.getParent(node); parent != NodeArena.NONE; parent = tree.getParent(parent)) {
+            int parentValue;
+            if (value == NodeArena.PROVEN_WIN) {
+                // The player to move at the parent can win, so the move into the parent loses
+                parentValue = NodeArena.PROVEN_LOSS;
+            }
+            else {
+                parentValue = NodeArena.PROVEN_WIN;
+                int first = tree.getFirstChild(parent);
+                for (int child = first; child < first + tree.getChildCount(parent); child++) {
+                    int childValue = tree.getProven(child);
+                    if (childValue == NodeArena.UNPROVEN)
+                        return;
+                    if (childValue == NodeArena.PROVEN_DRAW)
+                        parentValue = NodeArena.PROVEN_DRAW;
+                }
+            }
+            tree.setProven(parent, parentValue);
+            value = parentValue;
+        }
+    }
+
+    private void shuffle(int[] moves, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+
+    private int select(int node) {
+        double logVisits = Math.log(tree.getVisits(node));
+        int first = tree.getFirstChild(node);
+        int best = NodeArena.NONE;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + tree.getChildCount(node); child++) {
+            // An unproven node always has an unproven child, else it would be proven itself
+            if (tree.isProven(child))
+                continue;
+            int visits = tree.getVisits(child);
+            // The children are in random order, so the first unvisited one is a random pick
+            if (visits == 0)
+                return child;
+            double value = tree.getWins(child) / visits + exploration * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // A proven winning child of the root, else the most visited child not proven lost, or NONE if it has no children
+    private int bestChild() {
+        int first = tree.getFirstChild(ROOT);
+        if (first == NodeArena.NONE)
+            return NodeArena.NONE;
+        int best = NodeArena.NONE;
+        for (int child = first; child < first + tree.getChildCount(ROOT); child++) {
+            int value = tree.getProven(child);
+            if (value == NodeArena.PROVEN_WIN)
+                return child;
+            if (value != NodeArena.PROVEN_LOSS && (best == NodeArena.NONE || tree.getVisits(child) > tree.getVisits(best)))
+                best = child;
+        }
+        if (best != NodeArena.NONE)
+            return best;
+        // Every move loses, so play the one that held out longest in the playouts
+        best = first;
+        for (int child = first + 1; child < first + tree.getChildCount(ROOT); child++)
+            if (tree.getVisits(child) > tree.getVisits(best))
+                best = child;
+        return best;
+    }
+
+    /**
+     * @return The root move with a proven win, else the most visited one not proven to lose, as a
+     * cell index, or a random legal move if the root has not been expanded yet, or -1 if the game is over
+     */
+    public int getBestMove() {
+        int best = bestChild();
+        if (best != NodeArena.NONE)
+            return tree.getMove(best);
+        probe.copyFrom(rootState);
+        return probe.randomMove(random);
+    }
+
+    /**
+     * @return True if the result of the root position is known and searching it further is pointless
+     */
+    public boolean isRootProven() {
+        return tree.size() > 0 && tree.isProven(ROOT);
+    }
+
+    /**
+     * @return A root move proven to win as a cell index, or -1 if none has been found
+     */
+    public int getProvenWin() {
+        int best = bestChild();
+        return best != NodeArena.NONE && tree.getProven(best) == NodeArena.PROVEN_WIN ? tree.getMove(best) : -1;
+    }
+
+    /**
+     * @return The number of playouts through the root, including those from earlier turns
+     */
+    public int getRootVisits() {
+        return tree.size() == 0 ? 0 : tree.getVisits(ROOT);
+    }
+
+    /**
+     * Adds the visits of every root move to a table indexed by cell, used to merge the
+     * results of several independent searches of the same position.
+     * @param visitsByCell Array of 81 counts to add to
+     */
+    public void addRootVisits(int[] visitsByCell) {
+        int first = tree.getFirstChild(ROOT);
+        if (first == NodeArena.NONE)
+            return;
+        for (int child = first; child < first + tree.getChildCount(ROOT); child++)
+            visitsByCell[tree.getMove(child)] += tree.getVisits(child);
+    }
+
+    /**
+     * @return The share of playouts through the best move that the player to move won,
+     * or 1, 0.5 or 0 if the move is proven to win, draw or lose
+     */
+    public double getBestWinRate() {
+        int best = bestChild();
+        if (best == NodeArena.NONE)
+            return 0.5;
+        switch (tree.getProven(best)) {
+            case NodeArena.PROVEN_WIN: return 1;
+            case NodeArena.PROVEN_LOSS: return 0;
+            case NodeArena.PROVEN_DRAW: return 0.5;
+        }
+        if (tree.getVisits(best) == 0)
+            return 0.5;
+        return tree.getWins(best) / tree.getVisits(best);
+    }
+
+    /**
+     * @return The number of playouts run by this search object since it was created
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * @return The number of nodes in the tree
+     */
+    public int getTreeSize() {
+        return tree.size();
+    }
+}
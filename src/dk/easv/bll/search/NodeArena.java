@@ -0,0 +1,226 @@
+package dk.easv.bll.search;
+
+/**
+ * Storage for the nodes of a search tree in parallel primitive arrays instead of one object
+ * per node, so a tree of millions of nodes is a handful of arrays and growing it never
+ * allocates or leaves work for the garbage collector.
+ *
+ * A node is an index. The children of a node are stored next to each other, from
+ * getFirstChild() to getFirstChild() + getChildCount() - 1, and are all created at once
+ * by addChildren(). Children always get higher indexes than their parent.
+ *
+ * The capacity is fixed. When it is used up addChildren() returns NONE and the tree simply
+ * stops growing. Between moves the arena is either cleared, or compacted to the subtree
+ * that is kept, which moves that subtree to the front and frees everything else.
+ *
+ * A node can also be proven: its game-theoretic value is known (see MctsSearch), as a
+ * win, loss or draw for the player who made the move leading to it.
+ */
+public final class NodeArena {
+
+    public static final int NONE = -1;
+    /**
+     * Move of the root, which is not reached by a move.
+     */
+    public static final int NO_MOVE = -1;
+
+    public static final int UNPROVEN = 0;
+    public static final int PROVEN_WIN = 1;
+    public static final int PROVEN_LOSS = 2;
+    public static final int PROVEN_DRAW = 3;
+
+    private final int[] parent;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final byte[] move;
+    private final byte[] player;
+    private final int[] visits;
+    private final double[] wins;
+    private final byte[] proven;
+    // Scratch space for compact(), the new index of every node
+    private final int[] newIndex;
+    private int size;
+
+    /**
+     * @param capacity The maximum number of nodes, each takes about 28 bytes
+     */
+    public NodeArena(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new byte[capacity];
+        move = new byte[capacity];
+        player = new byte[capacity];
+        visits = new int[capacity];
+        wins = new double[capacity];
+        proven = new byte[capacity];
+        newIndex = new int[capacity];
+    }
+
+    /**
+     * Removes all nodes.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Clears the arena and creates a new root.
+     * @param player The player who made the move leading to the root, i.e. not the player to move
+     * @return The index of the root, always 0
+     */
+    public int newRoot(int player) {
+        size = 0;
+        return add(NONE, NO_MOVE, player);
+    }
+
+    /**
+     * Creates the children of a node, one per move, all made by the same player.
+     * @param node The node to expand, must not have children yet
+     * @param moves The moves leading to the children
+     * @param count The number of moves
+     * @param player The player making the moves
+     * @return The index of the first child, or NONE if the arena is too full to hold them
+     */
+    public int addChildren(int node, int[] moves, int count, int player) {
+        if (count == 0 || size + count > parent.length)
+            return NONE;
+        int first = size;
+        for (int i = 0; i < count; i++)
+            add(node, moves[i], player);
+        firstChild[node] = first;
+        childCount[node] = (byte) count;
+        return first;
+    }
+
+    private int add(int parentNode, int moveCell, int movePlayer) {
+        int node = size++;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        childCount[node] = 0;
+        move[node] = (byte) moveCell;
+        player[node] = (byte) movePlayer;
+        visits[node] = 0;
+        wins[node] = 0;
+        proven[node] = UNPROVEN;
+        return node;
+    }
+
+    /**
+     * Adds the result of a playout to a node.
+     * @param node The node
+     * @param result 1 for a win for the node's player, 0.5 for a tie and 0 for a loss
+     */
+    public void addResult(int node, double result) {
+        visits[node]++;
+        wins[node] += result;
+    }
+
+    /**
+     * Keeps only the subtree below a node, moving it to the front of the arena.
+     * The nodes keep their statistics and the node becomes the root, index 0, without a parent.
+     * @param root The node to keep
+     * @return The new index of the node, always 0
+     */
+    public int compact(int root) {
+        // Nodes are scanned in index order, and a child always comes after its parent,
+        // so a node is in the subtree if its parent is. Every node moves to a lower or
+        // equal index, so copying in index order never overwrites a node not yet copied.
+        int next = 0;
+        for (int node = root; node < size; node++) {
+            int oldParent = parent[node];
+            boolean inSubtree = node == root || (oldParent >= root && newIndex[oldParent] != NONE);
+            if (!inSubtree) {
+                newIndex[node] = NONE;
+                continue;
+            }
+            int target = next++;
+            newIndex[node] = target;
+            int targetParent = node == root ? NONE : newIndex[oldParent];
+            parent[target] = targetParent;
+            firstChild[target] = firstChild[node];
+            childCount[target] = childCount[node];
+            move[target] = node == root ? NO_MOVE : move[node];
+            player[target] = player[node];
+            visits[target] = visits[node];
+            wins[target] = wins[node];
+            proven[target] = proven[node];
+            // The parent, already moved, still holds the old index of its first child
+            if (targetParent != NONE && firstChild[targetParent] == node)
+                firstChild[targetParent] = target;
+        }
+        size = next;
+        return 0;
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @return The index of the first child, or NONE if the node has not been expanded
+     */
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    /**
+     * @return The move leading to the node, as a cell index, or NO_MOVE for the root
+     */
+    public int getMove(int node) {
+        return move[node];
+    }
+
+    /**
+     * @return The player who made the move leading to the node
+     */
+    public int getPlayer(int node) {
+        return player[node];
+    }
+
+    public int getVisits(int node) {
+        return visits[node];
+    }
+
+    /**
+     * @return The wins of the node's player, ties counting as half a win
+     */
+    public double getWins(int node) {
+        return wins[node];
+    }
+
+    /**
+     * @return UNPROVEN, or PROVEN_WIN, PROVEN_LOSS or PROVEN_DRAW for the node's player
+     */
+    public int getProven(int node) {
+        return proven[node];
+    }
+
+    /**
+     * @param node The node
+     * @param value PROVEN_WIN, PROVEN_LOSS or PROVEN_DRAW for the node's player
+     */
+    public void setProven(int node, int value) {
+        proven[node] = (byte) value;
+    }
+
+    public boolean isProven(int node) {
+        return proven[node] != UNPROVEN;
+    }
+
+    /**
+     * @return The number of nodes in use
+     */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return parent.length;
+    }
+}
@@ -0,0 +1,150 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Moves for the first plies of the game, searched offline by OpeningBookGenerator.
+ *
+ * The book file is a header followed by entries sorted by canonical key (see Symmetry), so
+ * one book entry covers a position and all its mirror images:
+ * <pre>
+ * header: long MAGIC, int VERSION, int entry count
+ * entry:  long canonical key, short move, short score
+ * </pre>
+ * The move is a cell index in the canonical image of the position and the score is the win
+ * rate of the player to move in thousandths. Numbers are big-endian.
+ *
+ * The file is mapped into memory with FileChannel.map, so opening it reads nothing and the
+ * pages are shared by every bot and thread using it. Lookups only use absolute reads of the
+ * buffer, so one book can be used by any number of threads.
+ */
+public class OpeningBook {
+
+    public static final long MAGIC = 0x55545454424F4F4BL; // "UTTTBOOK"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int ENTRY_BYTES = 12;
+    /**
+     * System property with the path of the default book, see getDefault().
+     */
+    public static final String FILE_PROPERTY = "uttt.book";
+    public static final String DEFAULT_FILE = "opening.book";
+
+    private static final OpeningBook EMPTY = new OpeningBook(ByteBuffer.allocate(0), 0);
+    private static OpeningBook defaultBook;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file into memory.
+     * @param file The book file
+     * @return The book
+     * @throws IOException If the file can't be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC)
+            throw new IOException(file + " is not an opening book");
+        if (buffer.getInt(8) != VERSION)
+            throw new IOException(file + " has book version " + buffer.getInt(8) + ", expected " + VERSION);
+        int size = buffer.getInt(12);
+        if (size < 0 || buffer.capacity() < HEADER_BYTES + (long) size * ENTRY_BYTES)
+            throw new IOException(file + " is truncated");
+        return new OpeningBook(buffer, size);
+    }
+
+    /**
+     * The book in the file named by the uttt.book system property, by default opening.book in
+     * the working directory. It is opened once and shared by all bots.
+     * @return The book, or an empty book if there is no book file
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (defaultBook == null) {
+            Path file = Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+            defaultBook = EMPTY;
+            if (Files.isRegularFile(file)) {
+                try {
+                    defaultBook = open(file);
+                } catch (IOException e) {
+                    System.out.println("Opening book not used: " + e.getMessage());
+                }
+            }
+        }
+        return defaultBook;
+    }
+
+    /**
+     * @param position The position
+     * @return The book move for the position as a cell index, or -1 if it is not in the book
+     */
+    public int lookup(GameSimulator position) {
+        int entry = find(position);
+        if (entry < 0)
+            return -1;
+        int symmetry = Symmetry.canonicalSymmetry(position);
+        int move = buffer.getShort(offset(entry) + 8);
+        if (move < 0 || move >= 81)
+            return -1;
+        int cell = Symmetry.inverseCell(symmetry, move);
+        // A different position with the same key is very unlikely, but its move would not be legal
+        return position.isLegal(cell) ? cell : -1;
+    }
+
+    /**
+     * @param position The position
+     * @return The win rate of the player to move after the book move, 0 to 1, or -1 if it is not in the book
+     */
+    public double getScore(GameSimulator position) {
+        int entry = find(position);
+        return entry < 0 ? -1 : buffer.getShort(offset(entry) + 10) / 1000.0;
+    }
+
+    // Binary search for the entry of the position, -1 if there is none
+    private int find(GameSimulator position) {
+        if (size == 0)
+            return -1;
+        long key = Symmetry.canonicalKey(position);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = buffer.getLong(offset(middle));
+            if (middleKey < key)
+                low = middle + 1;
+            else if (middleKey > key)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    private static int offset(int entry) {
+        return HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+
+    /**
+     * @return The number of positions in the book
+     */
+    public int size() {
+        return size;
+    }
+}
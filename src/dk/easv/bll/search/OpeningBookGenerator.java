@@ -0,0 +1,122 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Writes an OpeningBook: every position of the first plies of the game, up to symmetry, is
+ * searched with MctsSearch for much longer than a bot gets per move, and the best move of each
+ * is stored.
+ *
+ * Run with: java dk.easv.bll.search.OpeningBookGenerator [file] [plies] [seconds per position] [threads]
+ *
+ * The defaults are opening.book, 3 plies (118 positions) and 10 seconds per position,
+ * with one search per core running at the same time.
+ */
+public class OpeningBookGenerator {
+
+    private static final int DEFAULT_PLIES = 3;
+    private static final int DEFAULT_SECONDS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Path file = Paths.get(args.length > 0 ? args[0] : OpeningBook.DEFAULT_FILE);
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        List<GameSimulator> positions = positions(plies);
+        System.out.println(positions.size() + " positions, " + seconds + " s each on " + threads + " threads");
+
+        long[] keys = new long[positions.size()];
+        short[] moves = new short[positions.size()];
+        short[] scores = new short[positions.size()];
+        AtomicInteger done = new AtomicInteger();
+        // SplittableRandom is not thread safe, so every position gets its own before starting
+        SplittableRandom seeds = new SplittableRandom();
+        SplittableRandom[] randoms = new SplittableRandom[positions.size()];
+        for (int i = 0; i < randoms.length; i++)
+            randoms[i] = seeds.split();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, positions.size()).parallel().forEach(i -> {
+                GameSimulator position = positions.get(i);
+                MctsSearch search = new MctsSearch(randoms[i]);
+                search.setPlayoutPolicy(HeavyPlayoutPolicy.INSTANCE);
+                search.setRoot(position);
+                search.search(System.nanoTime() + seconds * 1_000_000_000L);
+                // Entries are stored in the canonical image of the position
+                int symmetry = Symmetry.canonicalSymmetry(position);
+                keys[i] = Symmetry.key(position, symmetry);
+                moves[i] = (short) Symmetry.transformCell(symmetry, search.getBestMove());
+                scores[i] = (short) Math.round(search.getBestWinRate() * 1000);
+                System.out.println(done.incrementAndGet() + "/" + positions.size());
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        write(file, keys, moves, scores);
+        System.out.println("Wrote " + file.toAbsolutePath());
+    }
+
+    /**
+     * @param plies The number of moves into the game
+     * @return Every position with fewer than plies moves played, one of each set of mirror images
+     */
+    public static List<GameSimulator> positions(int plies) {
+        Map<Long, GameSimulator> seen = new LinkedHashMap<>();
+        List<GameSimulator> level = new ArrayList<>();
+        level.add(new GameSimulator());
+        int[] moves = new int[81];
+        for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+            List<GameSimulator> next = new ArrayList<>();
+            for (GameSimulator position : level) {
+                if (seen.putIfAbsent(Symmetry.canonicalKey(position), position) != null
+                        || position.isGameOver() || ply == plies - 1)
+                    continue;
+                int count = position.getLegalMoves(moves);
+                for (int i = 0; i < count; i++) {
+                    GameSimulator child = position.copy();
+                    child.play(moves[i]);
+                    next.add(child);
+                }
+            }
+            level = next;
+        }
+        return new ArrayList<>(seen.values());
+    }
+
+    private static void write(Path file, long[] keys, short[] moves, short[] scores) throws IOException {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        // OpeningBook does a binary search on the keys
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeLong(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(keys.length);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeShort(moves[i]);
+                out.writeShort(scores[i]);
+            }
+        }
+    }
+}
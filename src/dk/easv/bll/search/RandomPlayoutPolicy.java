@@ -0,0 +1,26 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Uniformly random playouts, the fastest and weakest policy.
+ */
+public final class RandomPlayoutPolicy implements IPlayoutPolicy {
+
+    public static final RandomPlayoutPolicy INSTANCE = new RandomPlayoutPolicy();
+
+    private RandomPlayoutPolicy() {
+    }
+
+    @Override
+    public int selectMove(GameSimulator simulator, RandomGenerator random) {
+        return simulator.randomMove(random);
+    }
+
+    @Override
+    public int playout(GameSimulator simulator, RandomGenerator random) {
+        return simulator.randomPlayout(random);
+    }
+}
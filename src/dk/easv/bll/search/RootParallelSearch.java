@@ -0,0 +1,109 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Root parallel MCTS: every thread grows its own tree of the same position with its own
+ * random numbers, and when the time is up the visit counts of the root moves are added
+ * together and the move with the most visits in total is played.
+ *
+ * The trees share nothing while searching, so no locking is needed. Each tree keeps
+ * its subtree between moves like a single MctsSearch does.
+ */
+public class RootParallelSearch {
+
+    private static final int MIN_CAPACITY = 1 << 17;
+
+    private final MctsSearch[] searches;
+    private final int[] visits = new int[81];
+
+    /**
+     * @param threads The number of trees, and of threads searching them
+     */
+    public RootParallelSearch(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        SplittableRandom seeds = new SplittableRandom();
+        searches = new MctsSearch[threads];
+        // The trees share the memory of one, but never go below MIN_CAPACITY nodes each
+        int capacity = Math.max(MIN_CAPACITY, MctsSearch.DEFAULT_CAPACITY / threads);
+        for (int i = 0; i < threads; i++)
+            searches[i] = new MctsSearch(seeds.split(), capacity);
+    }
+
+    /**
+     * @param playoutPolicy How the moves of playouts are chosen on every tree
+     */
+    public void setPlayoutPolicy(IPlayoutPolicy playoutPolicy) {
+        for (MctsSearch search : searches)
+            search.setPlayoutPolicy(playoutPolicy);
+    }
+
+    /**
+     * Searches the position on every tree until the deadline.
+     * @param state The position to search from
+     * @param deadlineNanos Value of System.nanoTime() at which to stop
+     * @return The move with the most visits over all trees, as a cell index, or -1 if the game is over
+     */
+    public int search(GameSimulator state, long deadlineNanos) {
+        // With one thread the search runs on the caller's thread
+        if (searches.length == 1) {
+            searches[0].setRoot(state);
+            searches[0].search(deadlineNanos);
+            return searches[0].getBestMove();
+        }
+
+        // The pool only lives for one search, so a bot that is thrown away leaves no threads behind
+        ForkJoinPool pool = new ForkJoinPool(searches.length);
+        try {
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[searches.length];
+            for (int i = 0; i < searches.length; i++) {
+                MctsSearch search = searches[i];
+                tasks[i] = pool.submit(() -> {
+                    search.setRoot(state);
+                    search.search(deadlineNanos);
+                });
+            }
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+        } finally {
+            pool.shutdown();
+        }
+
+        // A win proven in one tree beats any number of visits in the others
+        for (MctsSearch search : searches)
+            if (search.getProvenWin() >= 0)
+                return search.getProvenWin();
+
+        Arrays.fill(visits, 0);
+        for (MctsSearch search : searches)
+            search.addRootVisits(visits);
+        int best = -1;
+        for (int cell = 0; cell < 81; cell++)
+            if (visits[cell] > 0 && (best < 0 || visits[cell] > visits[best]))
+                best = cell;
+        return best >= 0 ? best : searches[0].getBestMove();
+    }
+
+    /**
+     * @return The number of trees searched in parallel
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * @return The number of playouts run on all trees since this object was created
+     */
+    public long getPlayouts() {
+        long playouts = 0;
+        for (MctsSearch search : searches)
+            playouts += search.getPlayouts();
+        return playouts;
+    }
+}
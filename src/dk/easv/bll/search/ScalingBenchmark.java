@@ -0,0 +1,59 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Measures how the tree parallel search scales: playouts per second from a few positions
+ * for 1, 2, 4, 8 and 16 threads, or the thread counts given as arguments.
+ *
+ * Run with: java dk.easv.bll.search.ScalingBenchmark [threads...]
+ */
+public class ScalingBenchmark {
+
+    private static final long SEARCH_MS = 1000;
+    private static final int POSITIONS = 5;
+
+    public static void main(String[] args) {
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                threadCounts[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %8s%n", "threads", "playouts/s", "speedup");
+        // Speedup is relative to the first thread count
+        double first = 0;
+        for (int threads : threadCounts) {
+            // Warm up the JIT before measuring
+            new TreeParallelSearch(threads).search(new GameSimulator(), System.nanoTime() + 300_000_000L);
+
+            long playouts = 0;
+            long nanos = 0;
+            for (int position = 0; position < POSITIONS; position++) {
+                TreeParallelSearch search = new TreeParallelSearch(threads);
+                GameSimulator state = openingPosition(position);
+                long start = System.nanoTime();
+                search.search(state, start + SEARCH_MS * 1_000_000L);
+                nanos += System.nanoTime() - start;
+                playouts += search.getPlayouts();
+            }
+            double rate = playouts / (nanos / 1e9);
+            if (first == 0)
+                first = rate;
+            System.out.printf("%8d %14.0f %8.2f%n", threads, rate, rate / first);
+        }
+    }
+
+    // A fixed position a few moves into the game, the same for every thread count
+    private static GameSimulator openingPosition(int index) {
+        GameSimulator state = new GameSimulator();
+        SplittableRandom random = new SplittableRandom(index);
+        for (int i = 0; i < 2 * index; i++)
+            state.play(state.randomMove(random));
+        return state;
+    }
+}
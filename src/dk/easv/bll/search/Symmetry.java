@@ -0,0 +1,141 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.Zobrist;
+
+/**
+ * The 8 symmetries of the board (4 rotations, each optionally mirrored).
+ *
+ * Rotating or mirroring the 9x9 board rotates or mirrors every microboard and the
+ * macroboard the same way, and the rule that a move in cell (x%3, y%3) sends the
+ * opponent to microboard (x%3, y%3) is kept. So a position and its 7 images are worth
+ * exactly the same, and their best moves are images of each other.
+ *
+ * The canonical key of a position is the smallest Zobrist key among its 8 images.
+ * A search stores and looks up positions by that key, and moves stored with it are
+ * translated into (transformCell) and out of (inverseCell) the canonical image.
+ */
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    // CELL_MAP[symmetry][cell] is the image of the cell, INVERSE the other way
+    private static final int[][] CELL_MAP = new int[COUNT][81];
+    private static final int[][] INVERSE = new int[COUNT][81];
+    // MICRO_MAP[symmetry][micro] is the image of the microboard, Zobrist.ANY_BOARD maps to itself
+    private static final int[][] MICRO_MAP = new int[COUNT][10];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int x = 0; x < 9; x++)
+                for (int y = 0; y < 9; y++) {
+                    int image = transform(symmetry, x, y, 8);
+                    CELL_MAP[symmetry][x * 9 + y] = image;
+                    INVERSE[symmetry][image] = x * 9 + y;
+                }
+            for (int x = 0; x < 3; x++)
+                for (int y = 0; y < 3; y++)
+                    MICRO_MAP[symmetry][x * 3 + y] = transform(symmetry, x, y, 2);
+            MICRO_MAP[symmetry][Zobrist.ANY_BOARD] = Zobrist.ANY_BOARD;
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    // Returns the image of (x,y) as x*(max+1) + y, on a board with coordinates 0..max
+    private static int transform(int symmetry, int x, int y, int max) {
+        int tx, ty;
+        switch (symmetry) {
+            case 0: tx = x; ty = y; break;
+            case 1: tx = y; ty = max - x; break;
+            case 2: tx = max - x; ty = max - y; break;
+            case 3: tx = max - y; ty = x; break;
+            case 4: tx = x; ty = max - y; break;
+            case 5: tx = max - x; ty = y; break;
+            case 6: tx = y; ty = x; break;
+            default: tx = max - y; ty = max - x; break;
+        }
+        return tx * (max + 1) + ty;
+    }
+
+    /**
+     * @param symmetry 0-7
+     * @param cell Cell index, x*9 + y
+     * @return The cell index of the image of the cell
+     */
+    public static int transformCell(int symmetry, int cell) {
+        return CELL_MAP[symmetry][cell];
+    }
+
+    /**
+     * @param symmetry 0-7
+     * @param image Cell index of an image under the symmetry
+     * @return The cell it is the image of
+     */
+    public static int inverseCell(int symmetry, int image) {
+        return INVERSE[symmetry][image];
+    }
+
+    /**
+     * @param simulator The position
+     * @param symmetry 0-7
+     * @return The Zobrist key of the position's image under the symmetry
+     */
+    public static long key(GameSimulator simulator, int symmetry) {
+        if (symmetry == IDENTITY)
+            return simulator.getZobristKey();
+        int[] cells = CELL_MAP[symmetry];
+        long key = 0;
+        for (int micro = 0; micro < 9; micro++) {
+            int mask0 = simulator.getMicroboard(0, micro);
+            int mask1 = simulator.getMicroboard(1, micro);
+            while (mask0 != 0) {
+                key ^= Zobrist.cell(0, cells[GameSimulator.cellOf(micro, Integer.numberOfTrailingZeros(mask0))]);
+                mask0 &= mask0 - 1;
+            }
+            while (mask1 != 0) {
+                key ^= Zobrist.cell(1, cells[GameSimulator.cellOf(micro, Integer.numberOfTrailingZeros(mask1))]);
+                mask1 &= mask1 - 1;
+            }
+        }
+        if (simulator.getCurrentPlayer() == 1)
+            key ^= Zobrist.side();
+        return key ^ Zobrist.active(MICRO_MAP[symmetry][simulator.getActiveBoard()]);
+    }
+
+    /**
+     * @param simulator The position
+     * @return The symmetry whose image has the smallest key, i.e. the canonical image
+     */
+    public static int canonicalSymmetry(GameSimulator simulator) {
+        int best = IDENTITY;
+        long bestKey = simulator.getZobristKey();
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            long key = key(simulator, symmetry);
+            if (key < bestKey) {
+                bestKey = key;
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param simulator The position
+     * @return The key shared by the position and all its symmetric images
+     */
+    public static long canonicalKey(GameSimulator simulator) {
+        return key(simulator, canonicalSymmetry(simulator));
+    }
+
+    /**
+     * @param state The position
+     * @return The key shared by the position and all its symmetric images
+     */
+    public static long canonicalKey(IGameState state) {
+        return canonicalKey(new GameSimulator(state));
+    }
+}
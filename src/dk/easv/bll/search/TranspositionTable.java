@@ -0,0 +1,155 @@
+package dk.easv.bll.search;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table of searched positions, keyed by 64 bit (canonical) Zobrist keys.
+ *
+ * Entries live in two parallel arrays, one of keys and one of packed data, so the table
+ * never allocates after it is created. Entries are grouped in buckets of two. When a bucket
+ * is full, an entry from an older search (age) is replaced first, otherwise the entry with
+ * the smallest search depth, so deep and recent results survive the longest.
+ *
+ * Typical use with symmetry:
+ * <pre>
+ * int symmetry = Symmetry.canonicalSymmetry(simulator);
+ * long key = Symmetry.key(simulator, symmetry);
+ * int entry = table.probe(key);
+ * if (entry >= 0) move = Symmetry.inverseCell(symmetry, table.getMove(entry));
+ * ...
+ * table.store(key, depth, score, TranspositionTable.EXACT, Symmetry.transformCell(symmetry, bestMove));
+ * </pre>
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+    public static final int NO_MOVE = 127;
+
+    // Layout of the data word: score (32 bits) | depth (8) | move (7) | flag (2) | age (8)
+    private static final int DEPTH_SHIFT = 32;
+    private static final int MOVE_SHIFT = 40;
+    private static final int FLAG_SHIFT = 47;
+    private static final int AGE_SHIFT = 49;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int age = 0;
+
+    /**
+     * @param log2Entries The table holds 2^log2Entries entries (16 bytes each), e.g. 20 for 16 MB
+     */
+    public TranspositionTable(int log2Entries) {
+        if (log2Entries < 1 || 30 < log2Entries)
+            throw new IllegalArgumentException("log2Entries must be between 1 and 30");
+        keys = new long[1 << log2Entries];
+        data = new long[1 << log2Entries];
+        bucketMask = (1 << (log2Entries - 1)) - 1;
+    }
+
+    /**
+     * Starts a new search, entries stored before this become the first to be replaced.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        age = 0;
+    }
+
+    /**
+     * @param key The position key
+     * @return The entry holding the position, or -1 if it is not in the table
+     */
+    public int probe(long key) {
+        int slot = bucketOf(key);
+        if (keys[slot] == key && data[slot] != 0) return slot;
+        if (keys[slot + 1] == key && data[slot + 1] != 0) return slot + 1;
+        return -1;
+    }
+
+    /**
+     * Stores a search result.
+     * @param key The position key
+     * @param depth The depth searched below the position (0-255)
+     * @param score The score
+     * @param flag EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move The best move as a cell index, or NO_MOVE
+     */
+    public void store(long key, int depth, int score, int flag, int move) {
+        int slot = bucketOf(key);
+        int target;
+        if (keys[slot] == key || data[slot] == 0)
+            target = slot;
+        else if (keys[slot + 1] == key || data[slot + 1] == 0)
+            target = slot + 1;
+        else
+            target = slot + (isBetter(slot, slot + 1) ? 1 : 0);
+
+        // Keep a deeper result of the same position from this search
+        if (keys[target] == key && getAge(target) == age && getDepth(target) > depth)
+            return;
+        if (move < 0 || NO_MOVE < move)
+            move = NO_MOVE;
+
+        keys[target] = key;
+        // The flag is stored plus one so an empty slot is always 0
+        data[target] = (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) move << MOVE_SHIFT)
+                | ((long) (flag + 1) << FLAG_SHIFT)
+                | ((long) age << AGE_SHIFT);
+    }
+
+    public int getScore(int entry) {
+        return (int) data[entry];
+    }
+
+    public int getDepth(int entry) {
+        return (int) (data[entry] >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @param entry The entry
+     * @return The stored best move as a cell index, or NO_MOVE
+     */
+    public int getMove(int entry) {
+        return (int) (data[entry] >>> MOVE_SHIFT) & 0x7F;
+    }
+
+    public int getFlag(int entry) {
+        return ((int) (data[entry] >>> FLAG_SHIFT) & 0x3) - 1;
+    }
+
+    /**
+     * @return The number of entries the table can hold
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    private int getAge(int entry) {
+        return (int) (data[entry] >>> AGE_SHIFT) & 0xFF;
+    }
+
+    // True if entry a is worth keeping over entry b
+    private boolean isBetter(int a, int b) {
+        boolean aCurrent = getAge(a) == age;
+        boolean bCurrent = getAge(b) == age;
+        if (aCurrent != bCurrent)
+            return aCurrent;
+        return getDepth(a) >= getDepth(b);
+    }
+
+    private int bucketOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) << 1;
+    }
+}
@@ -0,0 +1,272 @@
+package dk.easv.bll.search;
+
+import dk.easv.bll.game.GameSimulator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tree parallel MCTS: all threads grow one shared tree.
+ *
+ * The statistics of a node are updated with atomic VarHandle operations, so no locks are taken
+ * while searching. A node is expanded by the one thread that wins a compare-and-set on it, and
+ * its children are published all at once; other threads reaching it meanwhile just play out from it.
+ *
+ * To keep threads from all walking down the same path, every thread passing a node adds a
+ * virtual loss to it: it counts as VIRTUAL_LOSS extra visits without wins until the playout's
+ * result is backed up, which makes the node look worse to the other threads for a moment.
+ *
+ * Like MctsSearch the tree is kept between searches and the subtree of the new position is reused.
+ */
+public class TreeParallelSearch {
+
+    public static final int VIRTUAL_LOSS = 3;
+
+    private static final int REUSE_DEPTH = 2;
+
+    private static final VarHandle VISITS;
+    private static final VarHandle VIRTUAL;
+    private static final VarHandle HALF_WINS;
+    private static final VarHandle EXPANDING;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISITS = lookup.findVarHandle(Node.class, "visits", int.class);
+            VIRTUAL = lookup.findVarHandle(Node.class, "virtual", int.class);
+            HALF_WINS = lookup.findVarHandle(Node.class, "halfWins", long.class);
+            EXPANDING = lookup.findVarHandle(Node.class, "expanding", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Worker[] workers;
+    private final GameSimulator rootState = new GameSimulator();
+    private double exploration = MctsSearch.DEFAULT_EXPLORATION;
+    private IPlayoutPolicy playoutPolicy = RandomPlayoutPolicy.INSTANCE;
+    private Node root;
+
+    /**
+     * @param threads The number of threads searching the tree
+     */
+    public TreeParallelSearch(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        SplittableRandom seeds = new SplittableRandom();
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(seeds.split());
+    }
+
+    /**
+     * @param exploration The UCT exploration constant, higher values try more moves
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param playoutPolicy How the moves of playouts are chosen, random by default
+     */
+    public void setPlayoutPolicy(IPlayoutPolicy playoutPolicy) {
+        this.playoutPolicy = playoutPolicy;
+    }
+
+    /**
+     * Searches the position with all threads until the deadline.
+     * @param state The position to search from
+     * @param deadlineNanos Value of System.nanoTime() at which to stop
+     * @return The most visited move as a cell index, or -1 if the game is over
+     */
+    public int search(GameSimulator state, long deadlineNanos) {
+        setRoot(state);
+        if (workers.length == 1) {
+            workers[0].run(deadlineNanos);
+        }
+        else {
+            // Like RootParallelSearch, the pool only lives for one search
+            ForkJoinPool pool = new ForkJoinPool(workers.length);
+            try {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length];
+                for (int i = 0; i < workers.length; i++) {
+                    Worker worker = workers[i];
+                    tasks[i] = pool.submit(() -> worker.run(deadlineNanos));
+                }
+                for (ForkJoinTask<?> task : tasks)
+                    task.join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return getBestMove();
+    }
+
+    private void setRoot(GameSimulator state) {
+        Node reused = root == null ? null : find(root, rootState, state, REUSE_DEPTH);
+        root = reused != null ? reused : new Node(-1, 1 - state.getCurrentPlayer(), null);
+        root.parent = null;
+        rootState.copyFrom(state);
+    }
+
+    private Node find(Node node, GameSimulator nodeState, GameSimulator target, int depth) {
+        if (nodeState.getZobristKey() == target.getZobristKey() && nodeState.getMoveNumber() == target.getMoveNumber())
+            return node;
+        Node[] children = node.children;
+        if (depth == 0 || children == null)
+            return null;
+        GameSimulator childState = new GameSimulator();
+        for (Node child : children) {
+            childState.copyFrom(nodeState);
+            childState.play(child.move);
+            Node found = find(child, childState, target, depth - 1);
+            if (found != null)
+                return found;
+        }
+        return null;
+    }
+
+    private int getBestMove() {
+        Node[] children = root.children;
+        Node best = null;
+        if (children != null)
+            for (Node child : children)
+                if (best == null || child.visits > best.visits)
+                    best = child;
+        if (best != null && best.visits > 0)
+            return best.move;
+        return rootState.copy().randomMove(workers[0].random);
+    }
+
+    /**
+     * @return The number of playouts through the root, including those from earlier turns
+     */
+    public int getRootVisits() {
+        return root == null ? 0 : (int) VISITS.getVolatile(root);
+    }
+
+    /**
+     * @return The number of playouts run by all threads since this object was created
+     */
+    public long getPlayouts() {
+        long playouts = 0;
+        for (Worker worker : workers)
+            playouts += worker.playouts;
+        return playouts;
+    }
+
+    /**
+     * @return The number of threads searching the tree
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * The state of one searching thread.
+     */
+    private final class Worker {
+        final SplittableRandom random;
+        final GameSimulator simulator = new GameSimulator();
+        final int[] moveBuffer = new int[81];
+        long playouts;
+
+        Worker(SplittableRandom random) {
+            this.random = random;
+        }
+
+        void run(long deadlineNanos) {
+            Node start = root;
+            do {
+                iterate(start);
+            } while (System.nanoTime() < deadlineNanos);
+        }
+
+        void iterate(Node start) {
+            simulator.copyFrom(rootState);
+            Node node = start;
+            VIRTUAL.getAndAdd(node, VIRTUAL_LOSS);
+
+            while (true) {
+                Node[] children = node.children;
+                if (children == null) {
+                    // Leaves are expanded on their second visit, the root straight away
+                    if (simulator.isGameOver() || (node != start && (int) VISITS.getOpaque(node) == 0)
+                            || !EXPANDING.compareAndSet(node, 0, 1))
+                        break;
+                    children = expand(node);
+                }
+                node = select(node, children);
+                simulator.play(node.move);
+                VIRTUAL.getAndAdd(node, VIRTUAL_LOSS);
+            }
+
+            int winner = playoutPolicy.playout(simulator, random);
+            playouts++;
+
+            for (; node != null; node = node.parent) {
+                if (winner == node.player)
+                    HALF_WINS.getAndAdd(node, 2L);
+                else if (winner == GameSimulator.NO_WINNER)
+                    HALF_WINS.getAndAdd(node, 1L);
+                VISITS.getAndAdd(node, 1);
+                VIRTUAL.getAndAdd(node, -VIRTUAL_LOSS);
+                if (node == start)
+                    break;
+            }
+        }
+
+        Node[] expand(Node node) {
+            int count = simulator.getLegalMoves(moveBuffer);
+            Node[] children = new Node[count];
+            int player = simulator.getCurrentPlayer();
+            for (int i = 0; i < count; i++)
+                children[i] = new Node(moveBuffer[i], player, node);
+            node.children = children;
+            return children;
+        }
+
+        Node select(Node node, Node[] children) {
+            int parentVisits = (int) VISITS.getOpaque(node) + (int) VIRTUAL.getOpaque(node);
+            double logVisits = Math.log(Math.max(1, parentVisits));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                int visits = (int) VISITS.getOpaque(child) + (int) VIRTUAL.getOpaque(child);
+                if (visits == 0)
+                    return child;
+                double wins = (long) HALF_WINS.getOpaque(child) * 0.5;
+                double value = wins / visits + exploration * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A position in the shared tree, reached by playing move from the parent.
+     * Wins are counted for the player who made the move, in halves so a tie can be added atomically.
+     */
+    private static final class Node {
+        final int move;
+        final int player;
+        Node parent;
+        volatile Node[] children;
+        int expanding;
+        int visits;
+        int virtual;
+        long halfWins;
+
+        Node(int move, int player, Node parent) {
+            this.move = move;
+            this.player = player;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.SearchThreads;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds and creates bots without the GUI. Works like DynamicBotClassHandler, which needs JavaFX,
+ * but hands out bot classes instead of instances, since every thread playing games needs
+ * bots of its own.
+ */
+public final class BotCatalog {
+
+    public static final String BOT_PACKAGE = "dk.easv.bll.bot";
+    public static final String DEFAULT_BOT_FOLDER = "./src/dk/easv/bll/bot";
+
+    private BotCatalog() {
+    }
+
+    /**
+     * Lists the bots in a source folder, one per .java file that holds a bot class.
+     * @param folder The bot source folder, usually DEFAULT_BOT_FOLDER
+     * @return The bot classes, sorted by name
+     * @throws IOException If the folder can't be read
+     */
+    public static List<Class<? extends IBot>> discover(Path folder) throws IOException {
+        List<Class<? extends IBot>> bots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.java")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                String className = BOT_PACKAGE + "." + fileName.substring(0, fileName.length() - ".java".length());
+                try {
+                    Class<?> clazz = Class.forName(className);
+                    if (isBot(clazz))
+                        bots.add(clazz.asSubclass(IBot.class));
+                } catch (ClassNotFoundException e) {
+                    System.out.println("Skipping " + fileName + ": " + className + " is not compiled");
+                }
+            }
+        }
+        bots.sort(Comparator.comparing(Class::getName));
+        return bots;
+    }
+
+    /**
+     * @return The bots in DEFAULT_BOT_FOLDER
+     * @throws IOException If the folder can't be read
+     */
+    public static List<Class<? extends IBot>> discover() throws IOException {
+        return discover(Paths.get(DEFAULT_BOT_FOLDER));
+    }
+
+    /**
+     * @param name A full class name, or the name of a class in dk.easv.bll.bot
+     * @return The bot class
+     * @throws IllegalArgumentException If there is no such bot
+     */
+    public static Class<? extends IBot> forName(String name) {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(name.contains(".") ? name : BOT_PACKAGE + "." + name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("No bot class " + name, e);
+        }
+        if (!isBot(clazz))
+            throw new IllegalArgumentException(name + " is not a bot");
+        return clazz.asSubclass(IBot.class);
+    }
+
+    /**
+     * @param botClass The bot class, with a public no-argument constructor
+     * @return A new bot
+     * @throws IllegalStateException If the bot can't be created
+     */
+    public static IBot create(Class<? extends IBot> botClass) {
+        try {
+            return botClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + botClass.getName(), e);
+        }
+    }
+
+    /**
+     * Creates a bot whose parallel search, if it has one, defaults to the given number of threads.
+     * @param botClass The bot class
+     * @param searchThreads The default number of search threads, see SearchThreads
+     * @return A new instance of the bot
+     * @throws IllegalStateException If the bot can't be created
+     */
+    public static IBot create(Class<? extends IBot> botClass, int searchThreads) {
+        return SearchThreads.withDefault(searchThreads, () -> create(botClass));
+    }
+
+    // Helpers in the bot folder, like TimeManager, and abstract base bots are not bots
+    private static boolean isBot(Class<?> clazz) {
+        return IBot.class.isAssignableFrom(clazz)
+                && !clazz.isInterface()
+                && !Modifier.isAbstract(clazz.getModifiers());
+    }
+}
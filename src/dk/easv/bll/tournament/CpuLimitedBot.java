@@ -0,0 +1,38 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Wraps a CPU-bound bot so it only thinks while holding a permit, which bounds the number
+ * of bots using the CPU at once however many games run on virtual threads.
+ */
+class CpuLimitedBot implements IBot {
+
+    private final IBot bot;
+    private final Semaphore permits;
+
+    CpuLimitedBot(IBot bot, Semaphore permits) {
+        this.bot = bot;
+        this.permits = permits;
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        // The bot's time per move only starts when it gets to think
+        permits.acquireUninterruptibly();
+        try {
+            return bot.doMove(state);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public String getBotName() {
+        return bot.getBotName();
+    }
+}
@@ -0,0 +1,190 @@
+package dk.easv.bll.tournament;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ratings of a set of bots from the results of games between them, on the Elo scale.
+ *
+ * The ratings are a Bradley-Terry fit: the strengths that best explain all the results so far,
+ * where a bot rated d points above another is expected to score 1 / (1 + 10^(-d/400)) against
+ * it. A tie counts as half a win for both, and every pairing that has played gets one extra
+ * virtual tie, so a bot that never scored still gets a finite rating. Unlike classic Elo
+ * updates the result does not depend on the order of the games.
+ *
+ * Results can be added from several threads as games finish. The fit is redone when the
+ * ratings are asked for, starting from the last fit, so it only takes a few iterations.
+ * The confidence intervals come from the curvature of the fit (the Fisher information),
+ * which is a good approximation once each bot has played a few dozen games.
+ */
+public class EloRatings {
+
+    private static final double ELO_PER_LOG = 400 / Math.log(10);
+    private static final double Z_95 = 1.96;
+    private static final double PRIOR_TIES = 1;
+    private static final int MAX_ITERATIONS = 1000;
+    private static final double TOLERANCE = 1e-9;
+
+    private final String[] names;
+    // games[i][j] and points[i][j], the games i played against j and the points i got in them
+    private final double[][] games;
+    private final double[][] points;
+    // The strengths of the last fit, 10^(rating/400)
+    private final double[] strength;
+    private boolean changed;
+
+    /**
+     * @param names The names of the bots, indexed like the results
+     */
+    public EloRatings(List<String> names) {
+        this.names = names.toArray(new String[0]);
+        int count = this.names.length;
+        games = new double[count][count];
+        points = new double[count][count];
+        strength = new double[count];
+        Arrays.fill(strength, 1);
+    }
+
+    /**
+     * @param a The index of one bot
+     * @param b The index of the other bot
+     * @param scoreA 1 if a won, 0.5 for a tie and 0 if b won
+     */
+    public synchronized void addResult(int a, int b, double scoreA) {
+        games[a][b]++;
+        games[b][a]++;
+        points[a][b] += scoreA;
+        points[b][a] += 1 - scoreA;
+        changed = true;
+    }
+
+    // Minorization-maximization updates (Hunter 2004) until the strengths stop moving
+    private void fit() {
+        int count = names.length;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double largestChange = 0;
+            for (int i = 0; i < count; i++) {
+                double wins = 0;
+                double denominator = 0;
+                for (int j = 0; j < count; j++) {
+                    if (games[i][j] == 0)
+                        continue;
+                    double played = games[i][j] + PRIOR_TIES;
+                    wins += points[i][j] + 0.5 * PRIOR_TIES;
+                    denominator += played / (strength[i] + strength[j]);
+                }
+                if (denominator == 0)
+                    continue;
+                double updated = wins / denominator;
+                largestChange = Math.max(largestChange, Math.abs(Math.log(updated / strength[i])));
+                strength[i] = updated;
+            }
+            normalize();
+            if (largestChange < TOLERANCE)
+                break;
+        }
+    }
+
+    // Ratings are only known relative to each other, so the geometric mean strength is kept at 1 (rating 0)
+    private void normalize() {
+        double logSum = 0;
+        for (double s : strength)
+            logSum += Math.log(s);
+        double scale = Math.exp(logSum / strength.length);
+        for (int i = 0; i < strength.length; i++)
+            strength[i] /= scale;
+    }
+
+    /**
+     * @return The bots from best to worst rated, with their ratings fitted to all results so far
+     */
+    public synchronized List<Rating> getRanking() {
+        if (changed) {
+            fit();
+            changed = false;
+        }
+        List<Rating> ranking = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            double totalGames = 0;
+            double totalPoints = 0;
+            double information = 0;
+            for (int j = 0; j < names.length; j++) {
+                if (games[i][j] == 0)
+                    continue;
+                totalGames += games[i][j];
+                totalPoints += points[i][j];
+                double expected = strength[i] / (strength[i] + strength[j]);
+                information += (games[i][j] + PRIOR_TIES) * expected * (1 - expected);
+            }
+            double interval = information == 0 ? Double.POSITIVE_INFINITY
+                    : Z_95 * ELO_PER_LOG / Math.sqrt(information);
+            ranking.add(new Rating(names[i], ELO_PER_LOG * Math.log(strength[i]), interval,
+                    (int) totalGames, totalGames == 0 ? 0 : totalPoints / totalGames));
+        }
+        ranking.sort(Comparator.comparingDouble(Rating::getElo).reversed());
+        return ranking;
+    }
+
+    /**
+     * @return The ranking as a text table, one line per bot
+     */
+    public String formatTable() {
+        StringBuilder table = new StringBuilder(String.format("%4s  %-36s %7s %7s %7s %7s%n",
+                "Rank", "Bot", "Elo", "+/-", "Games", "Score"));
+        int rank = 1;
+        for (Rating rating : getRanking())
+            table.append(String.format("%4d  %-36s %7.0f %7.0f %7d %6.1f%%%n", rank++, rating.getName(),
+                    rating.getElo(), rating.getInterval(), rating.getGames(), 100 * rating.getScore()));
+        return table.toString();
+    }
+
+    /**
+     * The rating of one bot.
+     */
+    public static final class Rating {
+        private final String name;
+        private final double elo;
+        private final double interval;
+        private final int games;
+        private final double score;
+
+        Rating(String name, double elo, double interval, int games, double score) {
+            this.name = name;
+            this.elo = elo;
+            this.interval = interval;
+            this.games = games;
+            this.score = score;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The rating, relative to the average bot at 0
+         */
+        public double getElo() {
+            return elo;
+        }
+
+        /**
+         * @return Half the width of the 95% confidence interval of the rating
+         */
+        public double getInterval() {
+            return interval;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * @return The share of the points the bot got, a tie counting as half a win
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.stats.GameResult;
+
+/**
+ * Plays one bot vs bot game through the GameManager, without the GUI.
+ *
+ * Unlike the GUI, which stops the simulation, a bot that returns an illegal move or throws
+ * loses the game, so one broken bot does not end a long run.
+ */
+public final class GameRunner {
+
+    private GameRunner() {
+    }
+
+    /**
+     * @param player0 The bot moving first
+     * @param player1 The bot moving second
+     * @param timePerMoveMs The time per move the bots are given in their IGameState
+     * @return The result of the game
+     */
+    public static GameResult play(IBot player0, IBot player1, int timePerMoveMs) {
+        GameState state = new GameState();
+        state.setTimePerMove(timePerMoveMs);
+        GameManager manager = new GameManager(state, player0, player1);
+        while (manager.getGameOver() == GameManager.GameOverState.Active) {
+            int player = manager.getCurrentPlayer();
+            boolean valid;
+            try {
+                valid = manager.updateGame();
+            } catch (RuntimeException e) {
+                System.out.println(botName(player, player0, player1) + " forfeits by failing: " + e);
+                return forfeit(player, player0, player1);
+            }
+            if (!valid) {
+                System.out.println(botName(player, player0, player1) + " forfeits by an illegal move");
+                return forfeit(player, player0, player1);
+            }
+            if (manager.getGameOver() == GameManager.GameOverState.Win)
+                return new GameResult(player0.getBotName(), player1.getBotName(),
+                        player == 0 ? GameResult.Winner.player0 : GameResult.Winner.player1);
+        }
+        return new GameResult(player0.getBotName(), player1.getBotName(), GameResult.Winner.tie);
+    }
+
+    private static GameResult forfeit(int player, IBot player0, IBot player1) {
+        return new GameResult(player0.getBotName(), player1.getBotName(),
+                player == 0 ? GameResult.Winner.player1 : GameResult.Winner.player0);
+    }
+
+    private static String botName(int player, IBot player0, IBot player1) {
+        return (player == 0 ? player0 : player1).getBotName();
+    }
+}
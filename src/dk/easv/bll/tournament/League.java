@@ -0,0 +1,113 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.stats.GameResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A round-robin league: every bot plays every other bot the same number of games, half of
+ * them moving first. All pairings are submitted to one MatchScheduler at once, so the games
+ * of every pairing share the threads, and the ratings are updated as each game finishes.
+ */
+public class League {
+
+    private final List<Class<? extends IBot>> bots;
+    private final int gamesPerPairing;
+    private final int threads;
+    private final int timePerMoveMs;
+    private boolean virtualThreads = false;
+
+    /**
+     * @param bots The bots taking part, at least two
+     * @param gamesPerPairing The games each pair of bots plays
+     * @param threads The number of games played at the same time
+     * @param timePerMoveMs The time per move given to the bots
+     */
+    public League(List<Class<? extends IBot>> bots, int gamesPerPairing, int threads, int timePerMoveMs) {
+        if (bots.size() < 2)
+            throw new IllegalArgumentException("A league needs at least two bots");
+        if (gamesPerPairing < 1)
+            throw new IllegalArgumentException("gamesPerPairing must be at least 1");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.bots = new ArrayList<>(bots);
+        this.gamesPerPairing = gamesPerPairing;
+        this.threads = threads;
+        this.timePerMoveMs = timePerMoveMs;
+    }
+
+    /**
+     * @param virtualThreads True to play every game on a virtual thread, see MatchScheduler.virtualThreads()
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return The number of games in the whole league
+     */
+    public int getTotalGames() {
+        return bots.size() * (bots.size() - 1) / 2 * gamesPerPairing;
+    }
+
+    /**
+     * Plays all pairings and waits for them to finish.
+     * @param listener Told about each game as it finishes, or null
+     * @return The ratings from all the games
+     * @throws InterruptedException If interrupted while waiting, the games not started yet are cancelled
+     * @throws IllegalStateException If a pairing stopped because of an error, e.g. a bot could not be created
+     */
+    public EloRatings run(LeagueListener listener) throws InterruptedException {
+        MatchScheduler scheduler = virtualThreads ? MatchScheduler.virtualThreads(threads) : new MatchScheduler(threads);
+        List<ScheduledMatch> matches = new ArrayList<>();
+        try {
+            // Named like the bots the scheduler creates, which may search on fewer threads
+            List<String> names = new ArrayList<>();
+            for (Class<? extends IBot> bot : bots)
+                names.add(BotCatalog.create(bot, scheduler.getSearchThreads()).getBotName());
+            EloRatings ratings = new EloRatings(names);
+
+            for (int a = 0; a < bots.size(); a++) {
+                for (int b = a + 1; b < bots.size(); b++) {
+                    int indexA = a;
+                    int indexB = b;
+                    matches.add(scheduler.submit(bots.get(a), bots.get(b), gamesPerPairing, timePerMoveMs,
+                            (match, result, aFirst) -> {
+                                ratings.addResult(indexA, indexB, scoreOfA(result, aFirst));
+                                if (listener != null)
+                                    listener.gameFinished(ratings, match, result);
+                            }));
+                }
+            }
+            for (ScheduledMatch match : matches)
+                match.await();
+            return ratings;
+        } catch (InterruptedException e) {
+            for (ScheduledMatch match : matches)
+                match.cancel();
+            throw e;
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static double scoreOfA(GameResult result, boolean aFirst) {
+        if (result.getWinner() == GameResult.Winner.tie)
+            return 0.5;
+        return (result.getWinner() == GameResult.Winner.player0) == aFirst ? 1 : 0;
+    }
+
+    /**
+     * Told about every game of the league as it finishes, on the thread that played it.
+     */
+    public interface LeagueListener {
+        /**
+         * @param ratings The ratings, already including the game
+         * @param match The pairing the game belongs to
+         * @param result The result of the game
+         */
+        void gameFinished(EloRatings ratings, ScheduledMatch match, GameResult result);
+    }
+}
@@ -0,0 +1,75 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+
+/**
+ * A match of a number of games between two bots, played on a MatchScheduler of its own.
+ * Exactly the requested number of games is played, and both bots move first equally often.
+ * With setVirtualThreads(true) the games run on virtual threads and the thread count limits
+ * the CPU-bound bots thinking at once instead, for matches against an IRemoteBot.
+ */
+public class Match {
+
+    private final Class<? extends IBot> botA;
+    private final Class<? extends IBot> botB;
+    private final int games;
+    private final int threads;
+    private final int timePerMoveMs;
+    private boolean virtualThreads = false;
+
+    /**
+     * @param botA The first bot
+     * @param botB The second bot
+     * @param games The number of games to play
+     * @param threads The number of games played at the same time
+     * @param timePerMoveMs The time per move given to the bots
+     */
+    public Match(Class<? extends IBot> botA, Class<? extends IBot> botB, int games, int threads, int timePerMoveMs) {
+        if (games < 0)
+            throw new IllegalArgumentException("games must not be negative");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.botA = botA;
+        this.botB = botB;
+        this.games = games;
+        this.threads = threads;
+        this.timePerMoveMs = timePerMoveMs;
+    }
+
+    /**
+     * @param virtualThreads True to play every game on a virtual thread, see MatchScheduler.virtualThreads()
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Plays all the games and waits for them to finish.
+     * @return The totals of the match
+     * @throws InterruptedException If interrupted while waiting, the games not started yet are cancelled
+     * @throws IllegalStateException If the match stopped because of an error, e.g. a bot could not be created
+     */
+    public MatchResult run() throws InterruptedException {
+        return run(null);
+    }
+
+    /**
+     * Plays all the games and waits for them to finish.
+     * @param listener Told about each game as it finishes, or null
+     * @return The totals of the match
+     * @throws InterruptedException If interrupted while waiting, the games not started yet are cancelled
+     * @throws IllegalStateException If the match stopped because of an error, e.g. a bot could not be created
+     */
+    public MatchResult run(MatchListener listener) throws InterruptedException {
+        MatchScheduler scheduler = virtualThreads ? MatchScheduler.virtualThreads(threads) : new MatchScheduler(threads);
+        ScheduledMatch match = scheduler.submit(botA, botB, games, timePerMoveMs, listener);
+        try {
+            return match.await();
+        } catch (InterruptedException e) {
+            match.cancel();
+            throw e;
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.game.stats.GameResult;
+
+/**
+ * Told about every game of a ScheduledMatch as it finishes. Called on the thread that played
+ * the game, so implementations must be thread safe and should return quickly.
+ */
+public interface MatchListener {
+
+    /**
+     * @param match The match the game belongs to
+     * @param result The result of the game
+     * @param aFirst True if bot A moved first
+     */
+    void gameFinished(ScheduledMatch match, GameResult result, boolean aFirst);
+
+    /**
+     * Called once when the last game has finished or the match was cancelled.
+     * @param match The match
+     */
+    default void matchFinished(ScheduledMatch match) {
+    }
+}
@@ -0,0 +1,90 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.game.stats.GameResult;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The totals of a match between two bots, A and B, who take turns moving first.
+ *
+ * Results can be added from many threads at once. Every count is a LongAdder, which spreads
+ * concurrent increments over cells of its own instead of having all threads fight over one
+ * field, so adding a result never blocks. A total read while games finish may be a game
+ * behind on one of the counts.
+ */
+public class MatchResult {
+
+    private final String botA;
+    private final String botB;
+    private final LongAdder winsA = new LongAdder();
+    private final LongAdder winsB = new LongAdder();
+    private final LongAdder ties = new LongAdder();
+    // Games where A moved first
+    private final LongAdder gamesAFirst = new LongAdder();
+
+    public MatchResult(String botA, String botB) {
+        this.botA = botA;
+        this.botB = botB;
+    }
+
+    /**
+     * @param result The result of a game between A and B
+     * @param aFirst True if A was player 0 in the game
+     */
+    public void add(GameResult result, boolean aFirst) {
+        if (aFirst)
+            gamesAFirst.increment();
+        if (result.getWinner() == GameResult.Winner.tie)
+            ties.increment();
+        else if ((result.getWinner() == GameResult.Winner.player0) == aFirst)
+            winsA.increment();
+        else
+            winsB.increment();
+    }
+
+    public String getBotA() {
+        return botA;
+    }
+
+    public String getBotB() {
+        return botB;
+    }
+
+    public int getWinsA() {
+        return winsA.intValue();
+    }
+
+    public int getWinsB() {
+        return winsB.intValue();
+    }
+
+    public int getTies() {
+        return ties.intValue();
+    }
+
+    public int getGames() {
+        return getWinsA() + getWinsB() + getTies();
+    }
+
+    /**
+     * @return The number of games A moved first in
+     */
+    public int getGamesAFirst() {
+        return gamesAFirst.intValue();
+    }
+
+    /**
+     * @return A's share of the points, a tie counting as half a win, or 0.5 before any game
+     */
+    public double getScoreA() {
+        int wins = getWinsA();
+        int tied = getTies();
+        int games = wins + getWinsB() + tied;
+        return games == 0 ? 0.5 : (wins + 0.5 * tied) / games;
+    }
+
+    @Override
+    public String toString() {
+        return botA + " vs " + botB + " | w/w/t " + getWinsA() + "/" + getWinsB() + "/" + getTies();
+    }
+}
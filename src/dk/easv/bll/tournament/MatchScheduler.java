@@ -0,0 +1,138 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Plays matches, every game as a task of its own, in one of two modes:
+ * <ul>
+ *     <li>On a work-stealing pool of platform threads, one game per thread at a time. The
+ *     threads keep busy until the last game is played, however uneven the game lengths are.</li>
+ *     <li>On virtual threads (see virtualThreads()), every game on a thread of its own. This is
+ *     for bots that mostly wait on I/O, like IRemoteBot: hundreds of games against them can be
+ *     in flight at once. Bots that are not an IRemoteBot only think while holding one of a fixed
+ *     number of CPU permits, so the local bots don't oversubscribe the CPU, and a separate, larger
+ *     number of game slots bounds the games in flight, and with them the bots alive.</li>
+ * </ul>
+ * Several matches can share a scheduler.
+ */
+public class MatchScheduler {
+
+    /**
+     * Games in flight at once on virtual threads, unless given to virtualThreads().
+     */
+    public static final int DEFAULT_GAMES_IN_FLIGHT = 256;
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final int searchThreads;
+    // Only in virtual thread mode, the permits for CPU-bound bots to think and the games in flight
+    private final Semaphore cpuPermits;
+    private final Semaphore gameSlots;
+
+    /**
+     * Creates a scheduler on a work-stealing pool.
+     * @param threads The number of games played at the same time
+     */
+    public MatchScheduler(int threads) {
+        this(threads, 0);
+    }
+
+    // gamesInFlight 0 means a work-stealing pool
+    private MatchScheduler(int threads, int gamesInFlight) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+        // The games already keep the cores busy, so each bot gets its share of them
+        this.searchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        if (gamesInFlight > 0) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            cpuPermits = new Semaphore(threads, true);
+            gameSlots = new Semaphore(gamesInFlight, true);
+        }
+        else {
+            executor = new ForkJoinPool(threads);
+            cpuPermits = null;
+            gameSlots = null;
+        }
+    }
+
+    /**
+     * Creates a scheduler that plays every game on a virtual thread of its own.
+     * @param cpuBoundLimit The number of bots that are not an IRemoteBot allowed to think at the same time
+     * @return The scheduler, with at most DEFAULT_GAMES_IN_FLIGHT games in flight
+     */
+    public static MatchScheduler virtualThreads(int cpuBoundLimit) {
+        return virtualThreads(cpuBoundLimit, DEFAULT_GAMES_IN_FLIGHT);
+    }
+
+    /**
+     * Creates a scheduler that plays every game on a virtual thread of its own.
+     * @param cpuBoundLimit The number of bots that are not an IRemoteBot allowed to think at the same time
+     * @param gamesInFlight The number of games played at the same time, each with a pair of bots of its own
+     * @return The scheduler
+     */
+    public static MatchScheduler virtualThreads(int cpuBoundLimit, int gamesInFlight) {
+        if (gamesInFlight < 1)
+            throw new IllegalArgumentException("gamesInFlight must be at least 1");
+        return new MatchScheduler(cpuBoundLimit, gamesInFlight);
+    }
+
+    /**
+     * Starts a match and returns at once. Exactly the requested number of games is played,
+     * bot A moving first in the even games and bot B in the odd ones.
+     * @param botA The first bot
+     * @param botB The second bot
+     * @param games The number of games
+     * @param timePerMoveMs The time per move given to the bots
+     * @param listener Told about each game as it finishes, or null
+     * @return The running match
+     */
+    public ScheduledMatch submit(Class<? extends IBot> botA, Class<? extends IBot> botB, int games,
+                                 int timePerMoveMs, MatchListener listener) {
+        if (games < 0)
+            throw new IllegalArgumentException("games must not be negative");
+        ScheduledMatch match = new ScheduledMatch(botA, botB, games, timePerMoveMs, listener, searchThreads, cpuPermits, gameSlots);
+        for (int game = 0; game < games; game++) {
+            boolean aFirst = game % 2 == 0;
+            executor.execute(() -> match.play(aFirst));
+        }
+        if (games == 0)
+            match.finish();
+        return match;
+    }
+
+    /**
+     * @return The number of games played at the same time, or with virtual threads the
+     * number of CPU-bound bots thinking at the same time
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return The default number of search threads of the bots created for the games, the
+     * cores divided by getThreads(), so with one game per core the parallel bots search on one thread
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * @return True if games are played on virtual threads
+     */
+    public boolean isVirtual() {
+        return cpuPermits != null;
+    }
+
+    /**
+     * Stops the threads once the games already submitted are done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
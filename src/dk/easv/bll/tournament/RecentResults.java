@@ -0,0 +1,61 @@
+package dk.easv.bll.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last results added, in a ring buffer of fixed size: once it is full every new result
+ * replaces the oldest one, so a run of any length takes the same memory.
+ *
+ * Adding takes no lock, each thread claims a slot with one atomic increment. A snapshot taken
+ * while results are added may miss the results whose slots are still being written.
+ *
+ * @param <T> The type of result
+ */
+public class RecentResults<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLong added = new AtomicLong();
+
+    /**
+     * @param capacity The number of results kept
+     */
+    public RecentResults(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T result) {
+        long index = added.getAndIncrement();
+        slots.set((int) (index % slots.length()), result);
+    }
+
+    /**
+     * @return The results kept, oldest first
+     */
+    public List<T> snapshot() {
+        long end = added.get();
+        long start = Math.max(0, end - slots.length());
+        List<T> results = new ArrayList<>((int) (end - start));
+        for (long index = start; index < end; index++) {
+            T result = slots.get((int) (index % slots.length()));
+            if (result != null)
+                results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * @return The number of results added since the buffer was created, including those dropped
+     */
+    public long getAdded() {
+        return added.get();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,92 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.game.stats.GameResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the results of games as they finish, from any number of threads, for a view that
+ * shows them: the totals of every pairing (MatchResult, striped LongAdder counts) and the last
+ * results in a RecentResults ring buffer. Memory use does not grow with the number of games.
+ *
+ * Recording a result never blocks. A view reads the aggregator at its own pace, e.g. a fixed
+ * number of times per second, and can use getVersion() to skip reads when nothing changed.
+ */
+public class ResultAggregator implements MatchListener {
+
+    private final int recentCapacity;
+    private final LongAdder version = new LongAdder();
+    // Replaced as a whole by clear(), so a result recorded during clear() ends up in one or the other
+    private volatile Map<String, MatchResult> pairings = new ConcurrentHashMap<>();
+    private volatile RecentResults<GameResult> recent;
+    private volatile MatchResult lastPairing;
+
+    /**
+     * @param recentCapacity The number of recent results kept
+     */
+    public ResultAggregator(int recentCapacity) {
+        this.recentCapacity = recentCapacity;
+        this.recent = new RecentResults<>(recentCapacity);
+    }
+
+    /**
+     * @param botA The name of one bot of the pairing
+     * @param botB The name of the other bot
+     * @param result The result of a game between them
+     * @param aFirst True if A was player 0 in the game
+     */
+    public void record(String botA, String botB, GameResult result, boolean aFirst) {
+        MatchResult pairing = pairings.computeIfAbsent(botA + '\n' + botB, key -> new MatchResult(botA, botB));
+        pairing.add(result, aFirst);
+        recent.add(result);
+        lastPairing = pairing;
+        version.increment();
+    }
+
+    @Override
+    public void gameFinished(ScheduledMatch match, GameResult result, boolean aFirst) {
+        record(match.getResult().getBotA(), match.getResult().getBotB(), result, aFirst);
+    }
+
+    /**
+     * @return The totals of every pairing seen since the last clear()
+     */
+    public List<MatchResult> getPairings() {
+        return new ArrayList<>(pairings.values());
+    }
+
+    /**
+     * @return The totals of the pairing of the last result, or null if there is none
+     */
+    public MatchResult getLastPairing() {
+        return lastPairing;
+    }
+
+    /**
+     * @return The most recent results, oldest first
+     */
+    public List<GameResult> getRecentResults() {
+        return recent.snapshot();
+    }
+
+    /**
+     * @return A number that changes whenever a result is recorded or the aggregator is cleared
+     */
+    public long getVersion() {
+        return version.sum();
+    }
+
+    /**
+     * Forgets all results.
+     */
+    public void clear() {
+        pairings = new ConcurrentHashMap<>();
+        recent = new RecentResults<>(recentCapacity);
+        lastPairing = null;
+        version.increment();
+    }
+}
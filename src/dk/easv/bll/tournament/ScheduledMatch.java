@@ -0,0 +1,160 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.IRemoteBot;
+import dk.easv.bll.game.stats.GameResult;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A match started by MatchScheduler. Can be watched while it runs and cancelled.
+ *
+ * Bots keep state between moves and are not thread safe, so every game being played has a
+ * pair of bots of its own. A pair is handed on to the next game when its game is over, so
+ * there are only as many pairs as games played at the same time. On virtual threads a game
+ * first waits for one of the scheduler's game slots and only then takes a pair, so the search
+ * state alive at once is bounded by the slots, not by the games started. Bots that are not an
+ * IRemoteBot also take a CPU permit for every move, see CpuLimitedBot.
+ */
+public class ScheduledMatch {
+
+    private final Class<? extends IBot> botA;
+    private final Class<? extends IBot> botB;
+    private final int games;
+    private final int timePerMoveMs;
+    private final MatchListener listener;
+    private final MatchResult result;
+    private final int searchThreads;
+    private final Semaphore cpuPermits;
+    private final Semaphore gameSlots;
+    private final Queue<IBot[]> idleBots = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger settled = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean cancelled;
+    private volatile RuntimeException failure;
+
+    ScheduledMatch(Class<? extends IBot> botA, Class<? extends IBot> botB, int games, int timePerMoveMs,
+                   MatchListener listener, int searchThreads, Semaphore cpuPermits, Semaphore gameSlots) {
+        this.botA = botA;
+        this.botB = botB;
+        this.games = games;
+        this.timePerMoveMs = timePerMoveMs;
+        this.listener = listener;
+        this.cpuPermits = cpuPermits;
+        this.gameSlots = gameSlots;
+        this.searchThreads = searchThreads;
+        this.result = new MatchResult(BotCatalog.create(botA, searchThreads).getBotName(),
+                BotCatalog.create(botB, searchThreads).getBotName());
+    }
+
+    // One game, run as a task on the pool
+    void play(boolean aFirst) {
+        // The slot is held for the whole game, as the bots keep their search state between moves
+        if (gameSlots != null)
+            gameSlots.acquireUninterruptibly();
+        try {
+            if (cancelled)
+                return;
+            IBot[] bots = idleBots.poll();
+            if (bots == null)
+                bots = new IBot[]{createBot(botA), createBot(botB)};
+            GameResult game = aFirst
+                    ? GameRunner.play(bots[0], bots[1], timePerMoveMs)
+                    : GameRunner.play(bots[1], bots[0], timePerMoveMs);
+            idleBots.add(bots);
+            result.add(game, aFirst);
+            if (listener != null)
+                listener.gameFinished(this, game, aFirst);
+        } catch (RuntimeException e) {
+            // A bot that can't be created fails every game, so stop the match
+            if (failure == null)
+                failure = e;
+            cancelled = true;
+        } finally {
+            if (gameSlots != null)
+                gameSlots.release();
+            if (settled.incrementAndGet() == games)
+                finish();
+        }
+    }
+
+    private IBot createBot(Class<? extends IBot> botClass) {
+        IBot bot = BotCatalog.create(botClass, searchThreads);
+        if (cpuPermits == null || bot instanceof IRemoteBot)
+            return bot;
+        return new CpuLimitedBot(bot, cpuPermits);
+    }
+
+    void finish() {
+        idleBots.clear();
+        done.countDown();
+        if (listener != null)
+            listener.matchFinished(this);
+    }
+
+    /**
+     * Stops the match: games not started yet are skipped, games being played are finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return True when no game of the match is running or waiting any more
+     */
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Waits for the match to finish.
+     * @return The totals of the match
+     * @throws InterruptedException If interrupted while waiting
+     * @throws IllegalStateException If the match stopped because of an error
+     */
+    public MatchResult await() throws InterruptedException {
+        done.await();
+        if (failure != null)
+            throw new IllegalStateException("Match stopped after " + result.getGames() + " games", failure);
+        return result;
+    }
+
+    /**
+     * Waits for the match to finish, for at most the given time.
+     * @return True if the match finished in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * @return The totals so far, updated as games finish
+     */
+    public MatchResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return The number of games played so far
+     */
+    public int getFinishedGames() {
+        return result.getGames();
+    }
+
+    /**
+     * @return The number of games requested
+     */
+    public int getTotalGames() {
+        return games;
+    }
+}
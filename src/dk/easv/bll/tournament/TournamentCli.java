@@ -0,0 +1,152 @@
+package dk.easv.bll.tournament;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.IRemoteBot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bot vs bot matches from the command line, for headless regression runs.
+ *
+ * Usage: java dk.easv.bll.tournament.TournamentCli [options] BotA BotB
+ *    or: java dk.easv.bll.tournament.TournamentCli --league [options] [Bot...]
+ * <pre>
+ *   --league      play a round-robin league and print a table of Elo ratings; without bot
+ *                 names all bots in the bot folder take part, except those of type IRemoteBot
+ *   --games N     games to play, per pairing in a league, default 100
+ *   --threads N   games played at the same time, default the number of cores
+ *   --virtual     play every game on a virtual thread, for bots waiting on a server;
+ *                 --threads then limits the local bots thinking at the same time
+ *   --time MS     time per move in milliseconds, default 1000
+ *   --out FILE    also append the result as a CSV line to FILE, or write the league table
+ *   --list        list the bots found in the bot folder and exit
+ * </pre>
+ * Bots are given by class name, either the full name or the name in dk.easv.bll.bot.
+ */
+public class TournamentCli {
+
+    private static final String CSV_HEADER = "botA,botB,games,winsA,winsB,ties,timePerMoveMs";
+    private static final String LEAGUE_CSV_HEADER = "rank,bot,elo,interval95,games,score";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int timePerMoveMs = 1000;
+        boolean virtual = false;
+        boolean league = false;
+        Path out = null;
+        List<String> bots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(value(args, ++i)); break;
+                case "--threads": threads = Integer.parseInt(value(args, ++i)); break;
+                case "--time": timePerMoveMs = Integer.parseInt(value(args, ++i)); break;
+                case "--virtual": virtual = true; break;
+                case "--league": league = true; break;
+                case "--out": out = Paths.get(value(args, ++i)); break;
+                case "--list":
+                    for (Class<? extends IBot> bot : BotCatalog.discover())
+                        System.out.println(bot.getSimpleName() + "\t" + BotCatalog.create(bot).getBotName());
+                    return;
+                default: bots.add(args[i]);
+            }
+        }
+        if (league) {
+            runLeague(bots, games, threads, timePerMoveMs, virtual, out);
+            return;
+        }
+        if (bots.size() != 2) {
+            System.out.println("Usage: java dk.easv.bll.tournament.TournamentCli [--games N] [--threads N] [--virtual] [--time MS] [--out FILE] [--list] BotA BotB");
+            System.out.println("   or: java dk.easv.bll.tournament.TournamentCli --league [options] [Bot...]");
+            System.exit(2);
+        }
+
+        Class<? extends IBot> botA = BotCatalog.forName(bots.get(0));
+        Class<? extends IBot> botB = BotCatalog.forName(bots.get(1));
+        System.out.println("Playing " + games + " games of " + botA.getSimpleName() + " vs " + botB.getSimpleName()
+                + (virtual ? " on virtual threads, " + threads + " local bots thinking at once, "
+                        : " on " + threads + " threads, ") + timePerMoveMs + " ms per move");
+        long start = System.nanoTime();
+        int progressStep = Math.max(1, games / 10);
+        AtomicInteger played = new AtomicInteger();
+        Match match = new Match(botA, botB, games, threads, timePerMoveMs);
+        match.setVirtualThreads(virtual);
+        MatchResult result = match.run((running, game, aFirst) -> {
+            int finished = played.incrementAndGet();
+            if (finished % progressStep == 0 && finished < running.getTotalGames())
+                System.out.println(finished + "/" + running.getTotalGames() + " " + running.getResult());
+        });
+        System.out.println(result);
+        System.out.printf("Score %.1f%% for %s, %d s%n", 100 * result.getScoreA(), result.getBotA(),
+                (System.nanoTime() - start) / 1_000_000_000L);
+
+        if (out != null)
+            appendCsv(out, result, timePerMoveMs);
+    }
+
+    private static void runLeague(List<String> names, int gamesPerPairing, int threads, int timePerMoveMs,
+                                  boolean virtual, Path out) throws IOException, InterruptedException {
+        List<Class<? extends IBot>> bots = new ArrayList<>();
+        if (names.isEmpty()) {
+            // Remote bots need a server that may not be there, so they only play when named
+            for (Class<? extends IBot> bot : BotCatalog.discover())
+                if (!IRemoteBot.class.isAssignableFrom(bot))
+                    bots.add(bot);
+        }
+        else {
+            for (String name : names)
+                bots.add(BotCatalog.forName(name));
+        }
+
+        League league = new League(bots, gamesPerPairing, threads, timePerMoveMs);
+        league.setVirtualThreads(virtual);
+        int total = league.getTotalGames();
+        System.out.println("League of " + bots.size() + " bots, " + total + " games, " + gamesPerPairing
+                + " per pairing, " + timePerMoveMs + " ms per move");
+        long start = System.nanoTime();
+        int progressStep = Math.max(1, total / 10);
+        AtomicInteger played = new AtomicInteger();
+        EloRatings ratings = league.run((current, match, game) -> {
+            int finished = played.incrementAndGet();
+            if (finished % progressStep == 0 && finished < total)
+                System.out.println(finished + "/" + total + " games\n" + current.formatTable());
+        });
+        System.out.println(ratings.formatTable());
+        System.out.println((System.nanoTime() - start) / 1_000_000_000L + " s");
+
+        if (out != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add(LEAGUE_CSV_HEADER);
+            int rank = 1;
+            for (EloRatings.Rating rating : ratings.getRanking())
+                lines.add(rank++ + "," + rating.getName() + "," + Math.round(rating.getElo()) + ","
+                        + Math.round(rating.getInterval()) + "," + rating.getGames() + ","
+                        + String.format(Locale.ROOT, "%.3f", rating.getScore()));
+            Files.write(out, lines);
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length)
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+    private static void appendCsv(Path file, MatchResult result, int timePerMoveMs) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file))
+            lines.add(CSV_HEADER);
+        lines.add(result.getBotA() + "," + result.getBotB() + "," + result.getGames() + "," + result.getWinsA()
+                + "," + result.getWinsB() + "," + result.getTies() + "," + timePerMoveMs);
+        Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -8,6 +8,7 @@ package dk.easv.dal;
 import dk.easv.bll.bot.IBot;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.*;
@@ -28,6 +29,13 @@ public class DynamicBotClassHandler {
         }
         return fileName;
     }
+
+    // Helpers in the bot folder, like TimeManager, and abstract base bots are not listed
+    private static boolean isBot(Class<?> clazz) {
+        return IBot.class.isAssignableFrom(clazz)
+                && !clazz.isInterface()
+                && !Modifier.isAbstract(clazz.getModifiers());
+    }
     
     public static void writeBotsToTextFile() throws ClassNotFoundException, IOException, InstantiationException, IllegalAccessException {
         File file = new File("bots.txt");
@@ -42,7 +50,7 @@ public class DynamicBotClassHandler {
                 URL[] urls = {path.toFile().toURI().toURL()};
                 ClassLoader cl = new URLClassLoader(urls);
                 Class clazz = cl.loadClass(classPathAndName);
-                if (!clazz.isInterface()) {
+                if (isBot(clazz)) {
                     IBot bot = (IBot) clazz.newInstance();
                     bots.add(bot.getBotName());
                 }
@@ -65,7 +73,7 @@ public class DynamicBotClassHandler {
                 URL[] urls = {path.toFile().toURI().toURL()};
                 ClassLoader cl = new URLClassLoader(urls);
                 Class clazz = cl.loadClass(classPathAndName);
-                if (!clazz.isInterface()) {
+                if (isBot(clazz)) {
                     IBot bot = (IBot) clazz.newInstance();
                     bots.add(bot);
                 }
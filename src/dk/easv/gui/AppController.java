@@ -2,8 +2,8 @@ package dk.easv.gui;
 
 import com.jfoenix.controls.*;
 import dk.easv.bll.bot.IBot;
-import dk.easv.bll.game.GameManager;
-import dk.easv.bll.game.stats.GameResult;
+import dk.easv.bll.tournament.MatchScheduler;
+import dk.easv.bll.tournament.ScheduledMatch;
 import dk.easv.dal.DynamicBotClassHandler;
 import static dk.easv.gui.util.FontAwesomeHelper.getFontAwesomeIconFromPlayerId;
 import static dk.easv.dal.DynamicBotClassHandler.loadBotList;
@@ -24,7 +24,6 @@ import java.net.URL;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
@@ -64,9 +63,9 @@ public class AppController implements Initializable {
     @FXML
     private AnchorPane anchorMain;
     private BooleanProperty simulation= new SimpleBooleanProperty(false);
-    private volatile int winsBot1 = 0;
-    private volatile int winsBot2 = 0;
-    private volatile int ties = 0;
+    private final MatchScheduler scheduler =
+            new MatchScheduler(Runtime.getRuntime().availableProcessors());
+    private ScheduledMatch simulationMatch = null;
     @FXML
     private JFXToggleButton toggleBtnSim;
     @FXML
@@ -146,18 +145,20 @@ public class AppController implements Initializable {
     }
 
     private void startSimulation(long amountOfSimulations) {
-        int multiCores = Runtime.getRuntime().availableProcessors();
-        winsBot1 = 0;
-        winsBot2 = 0;
-        ties = 0;
-        for (int i = 0; i < multiCores; i++) {
-            Thread t = new Thread(
-                    new Simulator(amountOfSimulations/multiCores, 
-                        this.comboBotsLeft.getValue().getClass(), 
-                        this.comboBotsRight.getValue().getClass()));
-            t.setDaemon(true);
-            t.start();
-        }
+        // Only one simulation at a time, the games of the last one not played yet are dropped
+        // and the results of those still being played are ignored
+        if (simulationMatch != null)
+            simulationMatch.cancel();
+        simulationMatch = scheduler.submit(
+                this.comboBotsLeft.getValue().getClass(),
+                this.comboBotsRight.getValue().getClass(),
+                (int) amountOfSimulations,
+                BoardModel.TIME_PER_MOVE,
+                (match, result, aFirst) -> {
+                    // Recorded on the game's thread, the stats window shows it on its next refresh
+                    if (!match.isCancelled())
+                        statsModel.getAggregator().gameFinished(match, result, aFirst);
+                });
     }
 
     @FXML
@@ -174,122 +175,6 @@ public class AppController implements Initializable {
         }
     }
     
-    private class Simulator implements Runnable{
-        private final long amountOfSimulations;
-        private IBot bot1;
-        private IBot bot2;
-        public Simulator(
-                long amountOfSimulations, 
-                Class<? extends IBot> b1, 
-                Class<? extends IBot> b2) {
-
-            this.amountOfSimulations=amountOfSimulations;
-            try {
-                this.bot1 = b1.newInstance();
-                this.bot2 = b2.newInstance();
-            }
-            catch (InstantiationException ex) {
-                Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
-            }
-            catch (IllegalAccessException ex) {
-                Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        
-        @Override
-        public void run() {
-            for (int i = 0; i < amountOfSimulations/2; i++) {
-                BoardModel model = new BoardModel(bot1, bot2);
-                int currentPlayer = 0;
-                while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
-                    currentPlayer = model.getCurrentPlayer();
-                    Boolean valid = model.doMove();
-                    if (!valid) {
-                        throw new RuntimeException("Bot not following rules!");
-                    }
-                }
-                // There is a tie
-                if (model.getGameOverState().equals(GameManager.GameOverState.Tie)) {
-                    this.addGameResult(
-                            new GameResult(
-                                    bot1.getBotName(), 
-                                    bot2.getBotName(), 
-                                    GameResult.Winner.tie));
-                    ties++;
-                }
-                else { // There is a winner
-                    GameResult.Winner winResult=null;
-                    if(currentPlayer==0) {
-                        winsBot1++;
-                        winResult = GameResult.Winner.player0;
-                    }
-                    else if(currentPlayer==1){
-                        winsBot2++;
-                        winResult = GameResult.Winner.player1;
-                    }
-                        
-                    this.addGameResult(
-                            new GameResult(
-                                    bot1.getBotName(), 
-                                    bot2.getBotName(), 
-                                    winResult));
-                }
-                
-            }
-            for (int i = 0; i < amountOfSimulations/2; i++) {
-                BoardModel model = new BoardModel(bot2, bot1);
-                int currentPlayer = 0;
-                while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
-                    currentPlayer = model.getCurrentPlayer();
-                    Boolean valid = model.doMove();
-                    if (!valid) {
-                        throw new RuntimeException("Bot not following rules!");
-                    }
-                }
-                // There is a tie
-                if (model.getGameOverState().equals(GameManager.GameOverState.Tie)) {
-                    this.addGameResult(
-                            new GameResult(
-                                    bot2.getBotName(), 
-                                    bot1.getBotName(), 
-                                    GameResult.Winner.tie));
-                    ties++;
-                }
-                else { // There is a winner
-                    GameResult.Winner winResult=null;
-                    if(currentPlayer==0) {
-                        winsBot2++;
-                        winResult = GameResult.Winner.player0;
-                    }
-                    else if(currentPlayer==1){
-                        winsBot1++;
-                        winResult = GameResult.Winner.player1;
-                    }
-                        
-                    this.addGameResult(
-                            new GameResult(
-                                    bot2.getBotName(), 
-                                    bot1.getBotName(), 
-                                    winResult));
-                }
-                
-            }
-            setSimulationResults(bot1.getBotName() + " vs " +
-                        bot2.getBotName() + " | " +
-                        "w/w/t " + winsBot1 + "/" +
-                        winsBot2 + "/" + ties);
-        }
-        private void setSimulationResults(String result) {
-            Platform.runLater(()-> 
-                statsModel.setLastSimulationResults(result));
-        }
-        private void addGameResult(GameResult gameResult) {
-            Platform.runLater(()->
-                statsModel.addGameResult(gameResult));
-        }
-    }
     private class CustomIBotListCell extends ListCell<IBot> {
 
         @Override
@@ -307,8 +192,8 @@ public class AppController implements Initializable {
     @FXML
     public void clickStart(ActionEvent actionEvent) throws IOException {
         if (simulation.get()) {
-            startSimulation(Math.round(sliderSim.getValue()));
             statsModel.clear();
+            startSimulation(Math.round(sliderSim.getValue()));
             openStatsWindow();
         }
         else {
@@ -12,7 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class BoardModel implements Observable{
-    private static final int TIME_PER_MOVE = 1000; //Each bot is allowed 1000ms per move
+    static final int TIME_PER_MOVE = 1000; //Each bot is allowed 1000ms per move
     private final List<InvalidationListener> listeners = new ArrayList<>();
     private final GameManager game;
     private boolean isForced=false;
@@ -24,6 +24,7 @@ public class BoardModel implements Observable{
     public BoardModel(IBot bot, boolean humanPlaysFirst) {
         game = new GameManager(new GameState(), bot, humanPlaysFirst);
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
+        game.setPonderingEnabled(true); // The bot may think while the human does, if it can
     }
     public BoardModel(IBot bot1, IBot bot2) {
         game = new GameManager(new GameState(), bot1, bot2);
@@ -6,23 +6,56 @@
 package dk.easv.gui;
 
 import dk.easv.bll.game.stats.GameResult;
-import javafx.beans.Observable;
+import dk.easv.bll.tournament.MatchResult;
+import dk.easv.bll.tournament.ResultAggregator;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.util.Duration;
 
 /**
+ * Results are recorded in a ResultAggregator, from any thread, and the observable list and
+ * title are brought up to date REFRESH_FPS times per second on the FX thread. So a long
+ * simulation neither floods the FX event queue nor keeps every result in memory, the list
+ * shows the last RECENT_RESULTS games.
  *
  * @author jeppjleemoritzled
  */
 public class StatsModel {
+    private static final int REFRESH_FPS = 10;
+    private static final int RECENT_RESULTS = 1000;
+
     private final ObservableList<GameResult> gameResults = 
             FXCollections.observableArrayList();
     
     private final StringProperty lastSimulationResults = 
             new SimpleStringProperty("");
 
+    private final ResultAggregator aggregator = new ResultAggregator(RECENT_RESULTS);
+    private long shownVersion = -1;
+
+    public StatsModel() {
+        Timeline refresher = new Timeline(
+                new KeyFrame(Duration.millis(1000.0 / REFRESH_FPS), event -> refresh()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+        refresher.play();
+    }
+
+    private void refresh() {
+        long version = aggregator.getVersion();
+        if (version == shownVersion)
+            return;
+        shownVersion = version;
+        gameResults.setAll(aggregator.getRecentResults());
+        MatchResult lastPairing = aggregator.getLastPairing();
+        if (lastPairing != null)
+            lastSimulationResults.set(lastPairing.toString());
+    }
+
     public StringProperty lastSimulationResultsProperty() {
         return lastSimulationResults;
     }
@@ -38,13 +71,20 @@ public class StatsModel {
     public ObservableList<GameResult> getGameResults(){
         return gameResults;
     }
+
+    /**
+     * @return Where simulations record their results, safe to use from any thread
+     */
+    public ResultAggregator getAggregator() {
+        return aggregator;
+    }
     
-    public synchronized void addGameResult(GameResult gr) {
-        gameResults.add(gr);
+    public void addGameResult(GameResult gr) {
+        aggregator.record(gr.getPlayer0(), gr.getPlayer1(), gr, true);
     }
 
     public void clear() {
-        gameResults.clear();
+        aggregator.clear();
     }
     
     
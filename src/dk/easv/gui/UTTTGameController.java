@@ -243,7 +243,7 @@ public class UTTTGameController implements Initializable {
                         JFXButton btn = new JFXButton("");
                         btn.setButtonType(JFXButton.ButtonType.RAISED);
                         btn.getStyleClass().add("tictaccell");
-                        btn.setUserData(new Move(x + i * 3, y + k * 3));
+                        btn.setUserData(Move.of(x + i * 3, y + k * 3));
                         btn.setFocusTraversable(false);
                         btn.setOnMouseClicked(
                                 event -> {
@@ -272,15 +272,17 @@ public class UTTTGameController implements Initializable {
 
     private void checkAndLockIfGameEnd(int currentPlayer) {
         if (model.getGameOverState() != GameManager.GameOverState.Active) {
-            String[][] macroboard = model.getMacroboard();
+            String[][] macroboard = new String[3][3];
             // Lock game
             for (int i = 0; i < 3; i++) {
                 for (int k = 0; k < 3; k++) {
+                    macroboard[i][k] = model.getMacroboard()[i][k];
                     if (macroboard[i][k].equals(IField.AVAILABLE_FIELD)) {
                         macroboard[i][k] = IField.EMPTY_FIELD;
                     }
                 }
             }
+            model.getGameState().getField().setMacroboard(macroboard);
             if (model.getGameOverState().equals(GameManager.GameOverState.Tie)) {
                 Platform.runLater(() -> showWinnerPane("TIE"));
             }
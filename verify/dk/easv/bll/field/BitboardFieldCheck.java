@@ -0,0 +1,122 @@
+package dk.easv.bll.field;
+
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.RandomGameCheck;
+import dk.easv.bll.move.IMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static dk.easv.bll.game.RandomGameCheck.check;
+
+/**
+ * Plays random games on a Field and a BitboardField side by side, each under its own
+ * GameManager, and checks after every move and every undoMove() that both fields answer every
+ * IField query the same: board, macroboard, player ids, available moves in all three forms and
+ * in the same order, isEmpty(), isFull() and isInActiveMicroboard(). Copies made with the
+ * BitboardField(IField) constructor, from either field, fields filled with setBoard() and
+ * setMacroboard(), and fields whose views were written directly, like legacy bots do, are
+ * checked too.
+ *
+ * In half the games the BitboardField's views are handed out before the first move, to check
+ * that the setters keep them up to date. Run through RandomGameCheck.
+ */
+public class BitboardFieldCheck {
+
+    public static void main(String[] args) {
+        RandomGameCheck.run(args, "positions", BitboardFieldCheck::playGame);
+    }
+
+    // Returns the number of positions compared
+    private static long playGame(int game, SplittableRandom random) {
+        Field field = new Field();
+        BitboardField bitboard = new BitboardField();
+        GameManager fieldGame = new GameManager(new GameState(field));
+        GameManager bitboardGame = new GameManager(new GameState(bitboard));
+        // After the GameState, which clears the field
+        if (game % 2 == 1) {
+            bitboard.getBoard();
+            bitboard.getMacroboard();
+        }
+        int positions = 0;
+        int plies = 0;
+
+        while (true) {
+            compare(field, bitboard, "ply " + plies);
+            positions++;
+            if (fieldGame.getGameOver() != GameManager.GameOverState.Active)
+                break;
+            List<IMove> moves = field.getAvailableMoves();
+            IMove move = moves.get(random.nextInt(moves.size()));
+            check(fieldGame.makeMove(move) && bitboardGame.makeMove(move),
+                    "ply " + plies + ": move " + move + " refused");
+            plies++;
+        }
+        check(fieldGame.getGameOver() == bitboardGame.getGameOver(), "results differ");
+
+        while (plies > 0) {
+            fieldGame.undoMove();
+            bitboardGame.undoMove();
+            plies--;
+            compare(field, bitboard, "undo to ply " + plies);
+            positions++;
+        }
+        return positions;
+    }
+
+    private static void compare(Field field, BitboardField bitboard, String where) {
+        compareQueries(field, bitboard, where);
+        compareQueries(field, new BitboardField(field), where + " (copy of the Field)");
+        compareQueries(field, new BitboardField(bitboard), where + " (copy of the BitboardField)");
+        BitboardField filled = new BitboardField();
+        filled.setBoard(field.getBoard());
+        filled.setMacroboard(field.getMacroboard());
+        compareQueries(field, filled, where + " (setBoard and setMacroboard)");
+        BitboardField written = new BitboardField();
+        String[][] board = written.getBoard();
+        String[][] macroboard = written.getMacroboard();
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                board[x][y] = field.getBoard()[x][y];
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++)
+                macroboard[x][y] = field.getMacroboard()[x][y];
+        compareQueries(field, written, where + " (written into the views)");
+    }
+
+    private static void compareQueries(IField expected, IField actual, String where) {
+        check(Arrays.deepEquals(expected.getBoard(), actual.getBoard()), where + ": board differs");
+        check(Arrays.deepEquals(expected.getMacroboard(), actual.getMacroboard()), where + ": macroboard differs");
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                check(expected.getPlayerId(x, y).equals(actual.getPlayerId(x, y)),
+                        where + ": player id at " + x + "," + y + " differs");
+                check(expected.isInActiveMicroboard(x, y).equals(actual.isInActiveMicroboard(x, y)),
+                        where + ": isInActiveMicroboard at " + x + "," + y + " differs");
+            }
+        check(expected.isEmpty() == actual.isEmpty(), where + ": isEmpty differs");
+        check(expected.isFull() == actual.isFull(), where + ": isFull differs");
+
+        int[] expectedMoves = moves(expected);
+        check(Arrays.equals(expectedMoves, moves(actual)), where + ": available moves differ");
+        int[] buffer = new int[81];
+        check(Arrays.equals(expectedMoves, Arrays.copyOf(buffer, actual.getAvailableMoves(buffer))),
+                where + ": getAvailableMoves(int[]) differs");
+        List<Integer> visited = new ArrayList<>();
+        actual.forEachAvailableMove((x, y) -> visited.add(x * 9 + y));
+        check(Arrays.equals(expectedMoves, visited.stream().mapToInt(Integer::intValue).toArray()),
+                where + ": forEachAvailableMove differs");
+    }
+
+    // The available moves as cell indexes, in the order the field returns them
+    private static int[] moves(IField field) {
+        List<IMove> moves = field.getAvailableMoves();
+        int[] cells = new int[moves.size()];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = moves.get(i).getX() * 9 + moves.get(i).getY();
+        return cells;
+    }
+}
@@ -0,0 +1,102 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static dk.easv.bll.game.RandomGameCheck.check;
+
+/**
+ * Plays random games on GameSimulator and GameManager side by side and checks after every move
+ * that they agree on the legal moves, the result, the winner and the Zobrist key, that a
+ * simulator made from the GameManager's state and the state written back by copyTo() agree as
+ * well, and that taking every move back with undo() and undoMove() retraces the game.
+ * Half the games use a Field and half a BitboardField under the GameManager.
+ * Run through RandomGameCheck.
+ */
+public class GameSimulatorCheck {
+
+    public static void main(String[] args) {
+        RandomGameCheck.run(args, "moves", GameSimulatorCheck::playGame);
+    }
+
+    // Returns the number of moves played
+    private static long playGame(int game, SplittableRandom random) {
+        GameState state = game % 2 == 0 ? new GameState() : new GameState(new BitboardField());
+        GameManager manager = new GameManager(state);
+        GameSimulator simulator = new GameSimulator();
+        int[] cells = new int[81];
+        int[] previousAvailable = new int[81];
+        long[] keys = new long[82];
+        int[] buffer = new int[81];
+        int ply = 0;
+
+        while (true) {
+            String where = "ply " + ply;
+            compare(manager, simulator, buffer, where);
+            keys[ply] = simulator.getZobristKey();
+            if (simulator.isGameOver())
+                break;
+
+            int count = simulator.getLegalMoves(buffer);
+            int cell = buffer[random.nextInt(count)];
+            cells[ply] = cell;
+            previousAvailable[ply] = simulator.getAvailableBoards();
+            check(manager.makeMove(Move.of(cell)), where + ": GameManager refused move " + cell);
+            simulator.play(cell);
+            ply++;
+        }
+
+        for (int i = ply - 1; i >= 0; i--) {
+            manager.undoMove();
+            simulator.undo(cells[i], previousAvailable[i]);
+            String where = "undo to ply " + i;
+            compare(manager, simulator, buffer, where);
+            check(simulator.getZobristKey() == keys[i], where + ": key differs from the one before the move");
+        }
+        return ply;
+    }
+
+    private static void compare(GameManager manager, GameSimulator simulator, int[] buffer, String where) {
+        IGameState state = manager.getCurrentState();
+        boolean over = manager.getGameOver() != GameManager.GameOverState.Active;
+        check(over == simulator.isGameOver(), where + ": game over differs");
+        check(manager.getGameOver() == simulator.getGameOver(), where + ": result differs");
+        if (simulator.getGameOver() == GameManager.GameOverState.Win)
+            // The GameManager has already passed the turn to the loser
+            check(simulator.getWinner() == 1 - manager.getCurrentPlayer(), where + ": winner differs");
+        check(state.getZobristKey() == simulator.getZobristKey(), where + ": Zobrist key differs");
+        check(state.getMoveNumber() == simulator.getMoveNumber(), where + ": move number differs");
+        if (over)
+            return;
+
+        check(Arrays.equals(managerMoves(state), simulatorMoves(simulator, buffer)), where + ": legal moves differ");
+        GameSimulator converted = new GameSimulator(state);
+        check(converted.getZobristKey() == simulator.getZobristKey(), where + ": simulator made from the state differs");
+        check(Arrays.equals(simulatorMoves(converted, buffer), simulatorMoves(simulator, buffer)),
+                where + ": legal moves of the simulator made from the state differ");
+        GameState written = simulator.toGameState();
+        check(Arrays.deepEquals(written.getField().getBoard(), state.getField().getBoard()), where + ": copyTo() board differs");
+        check(Arrays.deepEquals(written.getField().getMacroboard(), state.getField().getMacroboard()),
+                where + ": copyTo() macroboard differs");
+    }
+
+    private static int[] managerMoves(IGameState state) {
+        List<IMove> moves = state.getField().getAvailableMoves();
+        int[] cells = new int[moves.size()];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = moves.get(i).getX() * 9 + moves.get(i).getY();
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    private static int[] simulatorMoves(GameSimulator simulator, int[] buffer) {
+        int[] cells = Arrays.copyOf(buffer, simulator.getLegalMoves(buffer));
+        Arrays.sort(cells);
+        return cells;
+    }
+}
@@ -0,0 +1,79 @@
+package dk.easv.bll.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runs the checks in the verify source root. Each check plays random games and compares two
+ * implementations of the same thing after every move; this class reads the arguments, seeds
+ * the random numbers, adds up what was compared and reports the first difference.
+ *
+ * Every check is run with: java [check class] [games] [seed]
+ *
+ * The default is 2000 games from a random seed. A check prints OK and its totals, or FAILED
+ * with the seed and the game, so the failure can be played again, and exits with code 1.
+ */
+public final class RandomGameCheck {
+
+    public static final int DEFAULT_GAMES = 2000;
+
+    /**
+     * One random game of a check.
+     */
+    @FunctionalInterface
+    public interface Game {
+        /**
+         * @param game The number of the game, from 0
+         * @param random The random numbers to choose the moves with
+         * @return The number of positions, moves or whatever the check counts, compared in the game
+         * @throws Failure At the first difference, see check()
+         */
+        long play(int game, SplittableRandom random);
+    }
+
+    /**
+     * A difference found by a check.
+     */
+    public static final class Failure extends RuntimeException {
+        Failure(String message) {
+            super(message);
+        }
+    }
+
+    private RandomGameCheck() {
+    }
+
+    /**
+     * Plays the games and prints the result. Call from main().
+     * @param args The arguments of main(): [games] [seed]
+     * @param counted What the numbers returned by the game are, e.g. "positions"
+     * @param game Plays and checks one game
+     */
+    public static void run(String[] args, String counted, Game game) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        long total = 0;
+        for (int i = 0; i < games; i++) {
+            try {
+                total += game.play(i, random);
+            } catch (RuntimeException e) {
+                System.out.println("FAILED with seed " + seed + " in game " + i + ": "
+                        + (e instanceof Failure ? e.getMessage() : e));
+                if (!(e instanceof Failure))
+                    e.printStackTrace(System.out);
+                System.exit(1);
+            }
+        }
+        System.out.println("OK: " + games + " games, " + total + " " + counted);
+    }
+
+    /**
+     * @param condition What must hold
+     * @param message What differs if it does not
+     * @throws Failure If the condition is false
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition)
+            throw new Failure(message);
+    }
+}
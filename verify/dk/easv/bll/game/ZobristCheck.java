@@ -0,0 +1,97 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+import dk.easv.bll.move.IMove;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static dk.easv.bll.game.RandomGameCheck.check;
+
+/**
+ * Checks the Zobrist keys kept up to date move by move against Zobrist.hash(), which computes
+ * them from scratch. Random games are played with GameManager.updateGame() and
+ * GameManager.makeMove() on Field and BitboardField states, and with GameSimulator.play().
+ * After every move all keys must equal the recomputed one, also in a GameState copy, a
+ * simulator made from the state and a PackedGameState round trip. Taking the moves back with
+ * undoMove() and GameSimulator.undo() must give back the keys from before each move.
+ *
+ * Every key is also remembered with the position it belongs to, so two different positions
+ * with the same key are reported as well. Run through RandomGameCheck.
+ */
+public class ZobristCheck {
+
+    public static void main(String[] args) {
+        Map<Long, String> positions = new HashMap<>();
+        RandomGameCheck.run(args, "distinct positions", (game, random) -> playGame(game, random, positions));
+    }
+
+    // Returns the number of positions not seen in earlier games
+    private static long playGame(int game, SplittableRandom random, Map<Long, String> positions) {
+        int known = positions.size();
+        boolean bitboard = game % 2 == 1;
+        GameManager updated = new GameManager(bitboard ? new GameState(new BitboardField()) : new GameState());
+        GameManager undoable = new GameManager(bitboard ? new GameState(new BitboardField()) : new GameState());
+        GameSimulator simulator = new GameSimulator();
+        int[] cells = new int[81];
+        int[] previousAvailable = new int[81];
+        long[] keys = new long[82];
+        long[] packed = new long[PackedGameState.WORDS];
+        int ply = 0;
+
+        while (true) {
+            String where = "ply " + ply;
+            IGameState state = updated.getCurrentState();
+            long key = Zobrist.hash(state);
+            check(state.getZobristKey() == key, where + ": updateGame() key differs from the recomputed one");
+            check(undoable.getCurrentState().getZobristKey() == key, where + ": makeMove() key differs from the recomputed one");
+            check(simulator.getZobristKey() == key, where + ": GameSimulator key differs from the recomputed one");
+            GameState copy = new GameState(state);
+            check(copy.getZobristKey() == key && Zobrist.hash(copy) == key, where + ": GameState copy has a different key");
+            check(new GameSimulator(state).getZobristKey() == key, where + ": simulator made from the state has a different key");
+            PackedGameState.pack(state, packed, 0);
+            check(PackedGameState.unpack(packed, 0).getZobristKey() == key, where + ": packed and unpacked state has a different key");
+
+            String position = describe(state);
+            String previous = positions.putIfAbsent(key, position);
+            check(previous == null || previous.equals(position), where + ": two positions share the key " + key);
+            keys[ply] = key;
+            if (updated.getGameOver() != GameManager.GameOverState.Active)
+                break;
+
+            List<IMove> moves = state.getField().getAvailableMoves();
+            IMove move = moves.get(random.nextInt(moves.size()));
+            cells[ply] = move.getX() * 9 + move.getY();
+            previousAvailable[ply] = simulator.getAvailableBoards();
+            check(updated.updateGame(move) && undoable.makeMove(move), where + ": move " + cells[ply] + " refused");
+            simulator.play(cells[ply]);
+            ply++;
+        }
+
+        for (int i = ply - 1; i >= 0; i--) {
+            undoable.undoMove();
+            simulator.undo(cells[i], previousAvailable[i]);
+            String where = "undo to ply " + i;
+            check(undoable.getCurrentState().getZobristKey() == keys[i], where + ": undoMove() key differs");
+            check(Zobrist.hash(undoable.getCurrentState()) == keys[i], where + ": recomputed key after undoMove() differs");
+            check(simulator.getZobristKey() == keys[i], where + ": GameSimulator.undo() key differs");
+        }
+        return positions.size() - known;
+    }
+
+    // What the key stands for: the cells, the side to move and the microboard the move is limited to
+    private static String describe(IGameState state) {
+        IField field = state.getField();
+        StringBuilder position = new StringBuilder(90);
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                String id = field.getPlayerId(x, y);
+                position.append(id.equals(IField.EMPTY_FIELD) ? '.' : id.charAt(0));
+            }
+        position.append(state.getMoveNumber() % 2).append(Zobrist.activeIndex(field.getMacroboard()));
+        return position.toString();
+    }
+}